@@ -0,0 +1,156 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import com.github.antoniomacri.reactivegwt.proxy.SerializationPolicyLoader.ParsedPolicy;
+import com.github.antoniomacri.reactivegwt.proxy.SerializationPolicyLoader.PolicyEntry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads and writes the binary form of a parsed policy, which can be loaded without parsing any text.
+ * <p>
+ * All the numbers are big-endian ints, and the format is:
+ * <pre>
+ * magic, version
+ * stringCount, then for every string: byteLength, UTF-8 bytes
+ * entryCount, then for every type: nameIndex, flags (a single byte), typeIdIndex
+ * clientFieldsCount, then for every class: nameIndex, fieldCount, fieldNameIndex...
+ * </pre>
+ * Every name, type id and field name is written once in the string table, and referenced by index.
+ */
+final class BinarySerializationPolicy {
+    private static final int MAGIC = 0x47525042; // GRPB
+    private static final int VERSION = 1;
+
+    private static final int FIELD_SER = 1;
+    private static final int INSTANT_SER = 1 << 1;
+    private static final int FIELD_DESER = 1 << 2;
+    private static final int INSTANT_DESER = 1 << 3;
+
+
+    static byte[] write(ParsedPolicy policy) {
+        Map<String, Integer> stringIndexes = new LinkedHashMap<>();
+        for (PolicyEntry entry : policy.entries.values()) {
+            stringIndexes.putIfAbsent(entry.binaryTypeName, stringIndexes.size());
+            stringIndexes.putIfAbsent(entry.typeId, stringIndexes.size());
+        }
+        policy.clientFields.forEach((className, fieldNames) -> {
+            stringIndexes.putIfAbsent(className, stringIndexes.size());
+            fieldNames.forEach(fieldName -> stringIndexes.putIfAbsent(fieldName, stringIndexes.size()));
+        });
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(stringIndexes.size());
+            for (String string : stringIndexes.keySet()) {
+                byte[] stringBytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(stringBytes.length);
+                out.write(stringBytes);
+            }
+
+            out.writeInt(policy.entries.size());
+            for (PolicyEntry entry : policy.entries.values()) {
+                out.writeInt(stringIndexes.get(entry.binaryTypeName));
+                out.writeByte((entry.fieldSer ? FIELD_SER : 0) | (entry.instantSer ? INSTANT_SER : 0)
+                              | (entry.fieldDeser ? FIELD_DESER : 0) | (entry.instantDeser ? INSTANT_DESER : 0));
+                out.writeInt(stringIndexes.get(entry.typeId));
+            }
+
+            out.writeInt(policy.clientFields.size());
+            for (Map.Entry<String, Set<String>> entry : policy.clientFields.entrySet()) {
+                out.writeInt(stringIndexes.get(entry.getKey()));
+                out.writeInt(entry.getValue().size());
+                for (String fieldName : entry.getValue()) {
+                    out.writeInt(stringIndexes.get(fieldName));
+                }
+            }
+        } catch (IOException e) {
+            // Never thrown when writing to memory
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static ParsedPolicy read(ByteBuffer buffer) throws ParseException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new ParseException("Not a binary serialization policy", 0);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new ParseException("Unsupported binary serialization policy version " + version, 4);
+            }
+
+            String[] strings = new String[readCount(buffer)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] stringBytes = new byte[readCount(buffer)];
+                buffer.get(stringBytes);
+                strings[i] = new String(stringBytes, StandardCharsets.UTF_8);
+            }
+
+            int entryCount = readCount(buffer);
+            Map<String, PolicyEntry> entries = new LinkedHashMap<>(entryCount * 4 / 3 + 1);
+            for (int i = 0; i < entryCount; i++) {
+                String binaryTypeName = readString(buffer, strings);
+                int flags = buffer.get();
+                String typeId = readString(buffer, strings);
+                entries.put(binaryTypeName, new PolicyEntry(binaryTypeName,
+                        (flags & FIELD_SER) != 0, (flags & INSTANT_SER) != 0,
+                        (flags & FIELD_DESER) != 0, (flags & INSTANT_DESER) != 0, typeId));
+            }
+
+            int clientFieldsCount = readCount(buffer);
+            Map<String, Set<String>> clientFields = new HashMap<>();
+            for (int i = 0; i < clientFieldsCount; i++) {
+                String className = readString(buffer, strings);
+                List<String> fieldNames = new ArrayList<>();
+                for (int fieldCount = readCount(buffer); fieldCount > 0; fieldCount--) {
+                    fieldNames.add(readString(buffer, strings));
+                }
+                clientFields.put(className, new HashSet<>(fieldNames));
+            }
+            return new ParsedPolicy(entries, clientFields);
+        } catch (BufferUnderflowException e) {
+            throw new ParseException("Truncated binary serialization policy", buffer.position());
+        }
+    }
+
+    /**
+     * Reads a count, checking it against the remaining bytes so that a corrupted file cannot cause a huge
+     * allocation: every counted item takes at least one byte.
+     */
+    private static int readCount(ByteBuffer buffer) throws ParseException {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new ParseException("Invalid count " + count + " in binary serialization policy", buffer.position() - 4);
+        }
+        return count;
+    }
+
+    private static String readString(ByteBuffer buffer, String[] strings) throws ParseException {
+        int index = buffer.getInt();
+        if (index < 0 || index >= strings.length) {
+            throw new ParseException("Invalid string index " + index + " in binary serialization policy", buffer.position() - 4);
+        }
+        return strings[index];
+    }
+
+    private BinarySerializationPolicy() {
+    }
+}
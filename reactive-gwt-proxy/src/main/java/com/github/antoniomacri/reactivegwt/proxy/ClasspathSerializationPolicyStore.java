@@ -0,0 +1,176 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+import static com.github.antoniomacri.reactivegwt.proxy.DirectorySerializationPolicyStore.POLICY_FILE_EXT;
+import static com.github.antoniomacri.reactivegwt.proxy.DirectorySerializationPolicyStore.POLICY_NAME_PATTERN;
+import static com.github.antoniomacri.reactivegwt.proxy.DirectorySerializationPolicyStore.SERVICES_FILE;
+
+/**
+ * Reads the serialization policies bundled with the application as classpath resources, in the same layout
+ * written by {@link DirectorySerializationPolicyStore} (see {@link SerializationPolicyBundler}).
+ * <p>
+ * Bundled policies come from the build of the GWT module, so they are used without fetching the policies
+ * of the module again: they are discovered over HTTP only when the server reports an unknown policy.
+ * This store is read-only, and does not save the discovered policies.
+ */
+public class ClasspathSerializationPolicyStore implements SerializationPolicyStore {
+    /**
+     * The resource directory containing a subdirectory for every bundled module.
+     */
+    public static final String RESOURCE_DIRECTORY = "META-INF/reactive-gwt/policies";
+    private static final Pattern MODULE_NAME_PATTERN = Pattern.compile("[A-Za-z0-9._-]+");
+
+    private final ClassLoader classLoader;
+    private final String resourceDirectory;
+
+
+    public ClasspathSerializationPolicyStore(ClassLoader classLoader, String resourceDirectory) {
+        this.classLoader = classLoader;
+        this.resourceDirectory = resourceDirectory.endsWith("/") ? resourceDirectory : resourceDirectory + "/";
+    }
+
+    /**
+     * Returns the store of the policies bundled for the given module, in a subdirectory of
+     * {@link #RESOURCE_DIRECTORY} named after the module (see {@link #getModuleName(String)}): the policies
+     * bundled at build time are found whatever the host the module is deployed to.
+     * <p>
+     * Returns null if no module name can be derived from the URL (e.g. {@code http://localhost:8080/}), since
+     * no policies can be bundled for it.
+     */
+    public static ClasspathSerializationPolicyStore forModule(String moduleBaseURL) {
+        String moduleName = findModuleName(moduleBaseURL);
+        if (moduleName == null) {
+            return null;
+        }
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = ClasspathSerializationPolicyStore.class.getClassLoader();
+        }
+        return new ClasspathSerializationPolicyStore(classLoader, RESOURCE_DIRECTORY + "/" + moduleName);
+    }
+
+    /**
+     * Returns the name of the module with the given base URL, that is the last segment of its path
+     * (e.g. {@code AppModule} for {@code http://localhost:8080/AppModule/}). A module name is returned as is.
+     *
+     * @throws IllegalArgumentException if no module name can be derived from the URL
+     */
+    static String getModuleName(String moduleBaseURL) {
+        String moduleName = findModuleName(moduleBaseURL);
+        if (moduleName == null) {
+            throw new IllegalArgumentException("No module name in " + moduleBaseURL);
+        }
+        return moduleName;
+    }
+
+    private static String findModuleName(String moduleBaseURL) {
+        String path = moduleBaseURL.trim();
+        try {
+            URI uri = new URI(path);
+            if (uri.getScheme() != null) {
+                path = uri.getPath() != null ? uri.getPath() : "";
+            }
+        } catch (URISyntaxException e) {
+            return null;
+        }
+        path = path.replaceFirst("/+$", "");
+        String moduleName = path.substring(path.lastIndexOf('/') + 1);
+        return MODULE_NAME_PATTERN.matcher(moduleName).matches() ? moduleName : null;
+    }
+
+    @Override
+    public StoredPolicies load() throws IOException {
+        String servicesResource = resourceDirectory + SERVICES_FILE;
+        Properties services = new Properties();
+        try (InputStream servicesStream = classLoader.getResourceAsStream(servicesResource)) {
+            if (servicesStream == null) {
+                return new StoredPolicies(Map.of(), Map.of());
+            }
+            try (Reader reader = new InputStreamReader(servicesStream, StandardCharsets.UTF_8)) {
+                services.load(reader);
+            }
+        }
+
+        Map<String, String> policyNameByService = new HashMap<>();
+        Map<String, String> policyContentByName = new HashMap<>();
+        for (String serviceName : services.stringPropertyNames()) {
+            String policyName = services.getProperty(serviceName);
+            if (!POLICY_NAME_PATTERN.matcher(policyName).matches()) {
+                throw new IOException("Invalid policy name " + policyName + " in " + servicesResource);
+            }
+            if (!policyContentByName.containsKey(policyName) && classLoader.getResource(getBinaryPolicyResource(policyName)) == null) {
+                String policyContent = loadContent(policyName);
+                if (policyContent == null) {
+                    throw new IOException("Missing policy " + policyName + " listed in " + servicesResource);
+                }
+                policyContentByName.put(policyName, policyContent);
+            }
+            policyNameByService.put(serviceName, policyName);
+        }
+        return new StoredPolicies(policyNameByService, policyContentByName);
+    }
+
+    @Override
+    public ByteBuffer loadBinary(String policyName) throws IOException {
+        URL binaryPolicyUrl = classLoader.getResource(getBinaryPolicyResource(policyName));
+        if (binaryPolicyUrl == null) {
+            return null;
+        }
+        if ("file".equals(binaryPolicyUrl.getProtocol())) {
+            // Not packed in a jar (e.g. an exploded classpath): mapped in memory like in a directory store
+            try {
+                return SerializationPolicyLoader.map(Path.of(binaryPolicyUrl.toURI()));
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // Read as any other resource
+            }
+        }
+        try (InputStream binaryPolicyStream = binaryPolicyUrl.openStream()) {
+            return ByteBuffer.wrap(binaryPolicyStream.readAllBytes());
+        }
+    }
+
+    @Override
+    public String loadContent(String policyName) throws IOException {
+        checkPolicyName(policyName);
+        try (InputStream policyStream = classLoader.getResourceAsStream(resourceDirectory + policyName + POLICY_FILE_EXT)) {
+            return policyStream != null ? new String(policyStream.readAllBytes(), StandardCharsets.UTF_8) : null;
+        }
+    }
+
+    private String getBinaryPolicyResource(String policyName) {
+        checkPolicyName(policyName);
+        return resourceDirectory + SerializationPolicyLoader.getBinarySerializationPolicyFileName(policyName);
+    }
+
+    private static void checkPolicyName(String policyName) {
+        if (!POLICY_NAME_PATTERN.matcher(policyName).matches()) {
+            throw new IllegalArgumentException("Invalid policy name " + policyName);
+        }
+    }
+
+    /**
+     * Does nothing, since bundled policies cannot be replaced at runtime.
+     */
+    @Override
+    public void save(StoredPolicies policies) {
+    }
+
+    @Override
+    public boolean needsRevalidation() {
+        return false;
+    }
+}
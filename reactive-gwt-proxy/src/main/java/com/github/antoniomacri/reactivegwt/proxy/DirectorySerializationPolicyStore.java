@@ -0,0 +1,171 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * Stores serialization policies in a local directory: one {@code <policyName>.gwt.rpc} file per policy (as
+ * served by the GWT module), along with its binary form in a {@code <policyName>.gwt.rpcb} file, and a
+ * {@code services.properties} file mapping service interfaces to policy names.
+ * <p>
+ * Every file is written to a temporary file and then moved in place, so that a crash while saving never
+ * leaves a truncated policy behind. Use a different directory for every GWT module.
+ */
+public class DirectorySerializationPolicyStore implements SerializationPolicyStore {
+    static final String SERVICES_FILE = "services.properties";
+    static final String POLICY_FILE_EXT = ".gwt.rpc";
+    static final String BINARY_POLICY_FILE_EXT = ".gwt.rpcb";
+    static final Pattern POLICY_NAME_PATTERN = Pattern.compile("[A-Z0-9]{32}");
+
+    private final Path directory;
+
+
+    public DirectorySerializationPolicyStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns a store in a subdirectory of the given one, named after the given module base URL.
+     */
+    public static DirectorySerializationPolicyStore forModule(Path baseDirectory, String moduleBaseURL) {
+        return new DirectorySerializationPolicyStore(baseDirectory.resolve(getModuleDirectoryName(moduleBaseURL)));
+    }
+
+    static String getModuleDirectoryName(String moduleBaseURL) {
+        URI uri = URI.create(moduleBaseURL.trim());
+        return (uri.getHost() + (uri.getPort() >= 0 ? "_" + uri.getPort() : "") + uri.getPath())
+                .replaceAll("[^A-Za-z0-9._-]+", "_");
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public StoredPolicies load() throws IOException {
+        Path servicesFile = directory.resolve(SERVICES_FILE);
+        if (!Files.isRegularFile(servicesFile)) {
+            return new StoredPolicies(Map.of(), Map.of());
+        }
+
+        Properties services = new Properties();
+        try (Reader reader = Files.newBufferedReader(servicesFile, StandardCharsets.UTF_8)) {
+            services.load(reader);
+        }
+
+        Map<String, String> policyNameByService = new HashMap<>();
+        Map<String, String> policyContentByName = new HashMap<>();
+        for (String serviceName : services.stringPropertyNames()) {
+            String policyName = services.getProperty(serviceName);
+            if (!POLICY_NAME_PATTERN.matcher(policyName).matches()) {
+                throw new IOException("Invalid policy name " + policyName + " in " + servicesFile);
+            }
+            if (!policyContentByName.containsKey(policyName) && !Files.isRegularFile(getBinaryPolicyFile(policyName))) {
+                String policyContent = loadContent(policyName);
+                if (policyContent == null) {
+                    // Not usable without its policy: the service will be discovered again
+                    continue;
+                }
+                policyContentByName.put(policyName, policyContent);
+            }
+            policyNameByService.put(serviceName, policyName);
+        }
+        return new StoredPolicies(policyNameByService, policyContentByName);
+    }
+
+    @Override
+    public void save(StoredPolicies policies) throws IOException {
+        Files.createDirectories(directory);
+
+        for (Map.Entry<String, String> entry : policies.getPolicyContentByName().entrySet()) {
+            String policyName = entry.getKey();
+            checkPolicyName(policyName);
+            Path policyFile = directory.resolve(policyName + POLICY_FILE_EXT);
+            // Policy names are hashes of their content: an existing file never needs to be rewritten
+            if (!Files.exists(policyFile)) {
+                writeAtomically(policyFile, entry.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+            Path binaryPolicyFile = getBinaryPolicyFile(policyName);
+            if (!Files.exists(binaryPolicyFile)) {
+                try {
+                    writeAtomically(binaryPolicyFile, SerializationPolicyLoader.compile(entry.getValue()));
+                } catch (ParseException e) {
+                    // Left without its binary form: the policy is parsed when loading it
+                }
+            }
+        }
+
+        Properties services = new Properties();
+        services.putAll(policies.getPolicyNameByService());
+        StringWriter servicesContent = new StringWriter();
+        services.store(servicesContent, null);
+        writeAtomically(directory.resolve(SERVICES_FILE), servicesContent.toString().getBytes(StandardCharsets.UTF_8));
+
+        // Remove the policies which are not used anymore
+        removeUnusedFiles(POLICY_FILE_EXT, policies);
+        removeUnusedFiles(BINARY_POLICY_FILE_EXT, policies);
+    }
+
+    /**
+     * Returns the binary form of the given policy mapped in memory, without copying it.
+     */
+    @Override
+    public ByteBuffer loadBinary(String policyName) throws IOException {
+        Path binaryPolicyFile = getBinaryPolicyFile(policyName);
+        return Files.isRegularFile(binaryPolicyFile) ? SerializationPolicyLoader.map(binaryPolicyFile) : null;
+    }
+
+    @Override
+    public String loadContent(String policyName) throws IOException {
+        checkPolicyName(policyName);
+        Path policyFile = directory.resolve(policyName + POLICY_FILE_EXT);
+        return Files.isRegularFile(policyFile) ? Files.readString(policyFile, StandardCharsets.UTF_8) : null;
+    }
+
+    private Path getBinaryPolicyFile(String policyName) {
+        checkPolicyName(policyName);
+        return directory.resolve(SerializationPolicyLoader.getBinarySerializationPolicyFileName(policyName));
+    }
+
+    private static void checkPolicyName(String policyName) {
+        if (!POLICY_NAME_PATTERN.matcher(policyName).matches()) {
+            throw new IllegalArgumentException("Invalid policy name " + policyName);
+        }
+    }
+
+    private void removeUnusedFiles(String fileExtension, StoredPolicies policies) throws IOException {
+        try (DirectoryStream<Path> policyFiles = Files.newDirectoryStream(directory, "*" + fileExtension)) {
+            for (Path policyFile : policyFiles) {
+                String fileName = policyFile.getFileName().toString();
+                String policyName = fileName.substring(0, fileName.length() - fileExtension.length());
+                if (!policies.getPolicyContentByName().containsKey(policyName)) {
+                    Files.deleteIfExists(policyFile);
+                }
+            }
+        }
+    }
+
+    private void writeAtomically(Path target, byte[] content) throws IOException {
+        Path tempFile = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tempFile, content);
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A request body publisher which gzips the given payload one chunk at a time, as the HTTP client asks for
+ * more data, so that the compressed body is never held in memory as a whole.
+ */
+final class GzipBodyPublisher implements HttpRequest.BodyPublisher {
+    private static final int CHUNK_SIZE = 8192;
+    private static final byte[] GZIP_HEADER = {
+            0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    private final ByteBuffer data;
+
+
+    GzipBodyPublisher(ByteBuffer data) {
+        this.data = data.duplicate();
+    }
+
+    @Override
+    public long contentLength() {
+        // Unknown until compressed: the body is sent with chunked transfer encoding
+        return -1;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        // The client may subscribe more than once (e.g. on redirects): every subscription starts over
+        subscriber.onSubscribe(new GzipSubscription(subscriber, data.duplicate()));
+    }
+
+
+    private static final class GzipSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final ByteBuffer data;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private Deflater deflater;
+        private CRC32 crc;
+        private boolean headerWritten;
+        private boolean done;
+        private volatile boolean cancelled;
+
+        GzipSubscription(Flow.Subscriber<? super ByteBuffer> subscriber, ByteBuffer data) {
+            this.subscriber = subscriber;
+            this.data = data;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancelled = true;
+                subscriber.onError(new IllegalArgumentException("Non-positive request: " + n));
+                drain();
+                return;
+            }
+            demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                // Another thread (or an outer call on this thread) is already emitting
+                return;
+            }
+            do {
+                while (!done && !cancelled && demand.get() > 0) {
+                    ByteBuffer chunk;
+                    try {
+                        chunk = nextChunk();
+                    } catch (RuntimeException e) {
+                        done = true;
+                        end();
+                        subscriber.onError(e);
+                        return;
+                    }
+                    demand.decrementAndGet();
+                    subscriber.onNext(chunk);
+                    if (done) {
+                        end();
+                        subscriber.onComplete();
+                    }
+                }
+                if (cancelled) {
+                    end();
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        private ByteBuffer nextChunk() {
+            if (deflater == null) {
+                deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+                crc = new CRC32();
+                crc.update(data.duplicate());
+                deflater.setInput(data);
+                deflater.finish();
+            }
+
+            byte[] buffer = new byte[CHUNK_SIZE];
+            int length = 0;
+            if (!headerWritten) {
+                System.arraycopy(GZIP_HEADER, 0, buffer, 0, GZIP_HEADER.length);
+                length = GZIP_HEADER.length;
+                headerWritten = true;
+            }
+            while (length < CHUNK_SIZE && !deflater.finished()) {
+                length += deflater.deflate(buffer, length, CHUNK_SIZE - length);
+            }
+            if (deflater.finished() && CHUNK_SIZE - length >= GZIP_TRAILER_LENGTH) {
+                length = writeIntLE(buffer, length, (int) crc.getValue());
+                length = writeIntLE(buffer, length, (int) deflater.getBytesRead());
+                done = true;
+            }
+            return ByteBuffer.wrap(buffer, 0, length);
+        }
+
+        private static int writeIntLE(byte[] buffer, int offset, int value) {
+            buffer[offset] = (byte) value;
+            buffer[offset + 1] = (byte) (value >> 8);
+            buffer[offset + 2] = (byte) (value >> 16);
+            buffer[offset + 3] = (byte) (value >> 24);
+            return offset + 4;
+        }
+
+        private void end() {
+            if (deflater != null) {
+                deflater.end();
+                deflater = null;
+            }
+            done = true;
+        }
+    }
+}
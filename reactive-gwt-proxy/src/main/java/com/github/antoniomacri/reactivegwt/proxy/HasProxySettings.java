@@ -106,4 +106,35 @@ public interface HasProxySettings {
 
     HasProxySettings setHttpClient(HttpClient httpClient);
 
+    boolean isResponseCompressionEnabled();
+
+    /**
+     * Whether to ask the server for gzip or deflate compressed responses (disabled by default).
+     * Compressed responses are inflated while they are received.
+     */
+    HasProxySettings setResponseCompressionEnabled(boolean responseCompressionEnabled);
+
+    int getRequestCompressionThreshold();
+
+    /**
+     * Gzips request payloads larger than the given number of bytes, while they are sent. A negative value
+     * (the default) never compresses requests.
+     * <p>
+     * The stock GWT servlet does not inflate request bodies: the server must decode {@code Content-Encoding: gzip}
+     * before the RPC servlet, e.g. with a servlet filter or the container's gzip handler.
+     */
+    HasProxySettings setRequestCompressionThreshold(int requestCompressionThreshold);
+
+    /**
+     * Counts what was decided about the serialization policy after failed calls, i.e. how often the policies
+     * were fetched again and how often that was avoided.
+     */
+    PolicyRefreshCounters getPolicyRefreshCounters();
+
+    /**
+     * Counts the bytes of the received responses, as received and once inflated, i.e. how much was saved by
+     * {@link #setResponseCompressionEnabled(boolean) compressed responses}.
+     */
+    ResponseSizeCounters getResponseSizeCounters();
+
 }
@@ -0,0 +1,135 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import com.github.antoniomacri.reactivegwt.proxy.SerializationPolicyLoader.PolicyEntry;
+import com.google.gwt.user.client.rpc.SerializationException;
+import com.google.gwt.user.server.rpc.SerializationPolicy;
+import com.google.gwt.user.server.rpc.impl.TypeNameObfuscator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A client side {@link SerializationPolicy} which keeps the types of the policy by name, and resolves a name
+ * to its class only when a class with that name is first exchanged. Classes which are never exchanged are
+ * never loaded.
+ * <p>
+ * Answers like {@link com.google.gwt.user.server.rpc.impl.StandardSerializationPolicy} as loaded by
+ * {@link SerializationPolicyLoader#load}: the policy is written by the server, so serialization and
+ * deserialization are swapped.
+ */
+final class LazySerializationPolicy extends SerializationPolicy implements TypeNameObfuscator {
+    private static final Logger log = LoggerFactory.getLogger(LazySerializationPolicy.class);
+    /**
+     * Cached in place of the classes which could not be found, since a cache value cannot be null.
+     */
+    private static final Class<?> NOT_FOUND = void.class;
+
+    private final Map<String, PolicyEntry> entries;
+    private final Map<String, Set<String>> clientFields;
+    private final Map<String, String> typeNamesById = new HashMap<>();
+    private final ClassLoader classLoader;
+    private final Map<String, Class<?>> resolvedClasses = new ConcurrentHashMap<>();
+
+
+    LazySerializationPolicy(Map<String, PolicyEntry> entries, Map<String, Set<String>> clientFields, ClassLoader classLoader) {
+        this.entries = entries;
+        this.clientFields = clientFields;
+        this.classLoader = classLoader;
+        for (PolicyEntry entry : entries.values()) {
+            typeNamesById.put(entry.typeId, entry.binaryTypeName);
+        }
+    }
+
+    @Override
+    public boolean shouldDeserializeFields(Class<?> clazz) {
+        if (clazz.isPrimitive()) {
+            return true;
+        }
+        PolicyEntry entry = getEntry(clazz);
+        return entry != null && entry.fieldSer;
+    }
+
+    @Override
+    public boolean shouldSerializeFields(Class<?> clazz) {
+        if (clazz.isPrimitive()) {
+            return true;
+        }
+        PolicyEntry entry = getEntry(clazz);
+        return entry != null && entry.fieldDeser;
+    }
+
+    @Override
+    public void validateDeserialize(Class<?> clazz) throws SerializationException {
+        if (clazz.isPrimitive()) {
+            return;
+        }
+        PolicyEntry entry = getEntry(clazz);
+        if (entry == null || !entry.fieldSer || !entry.instantSer) {
+            throw new SerializationException(
+                    "Type '"
+                    + clazz.getName()
+                    + "' was not included in the set of types which can be deserialized by this SerializationPolicy or its Class object could not be loaded. For security purposes, this type will not be deserialized.");
+        }
+    }
+
+    @Override
+    public void validateSerialize(Class<?> clazz) throws SerializationException {
+        if (clazz.isPrimitive()) {
+            return;
+        }
+        PolicyEntry entry = getEntry(clazz);
+        if (entry == null || !entry.fieldDeser || !entry.instantDeser) {
+            throw new SerializationException(
+                    "Type '"
+                    + clazz.getName()
+                    + "' was not included in the set of types which can be serialized by this SerializationPolicy or its Class object could not be loaded. For security purposes, this type will not be serialized.");
+        }
+    }
+
+    @Override
+    public Set<String> getClientFieldNamesForEnhancedClass(Class<?> clazz) {
+        Set<String> fieldNames = clientFields.get(clazz.getName());
+        return fieldNames == null || !isPolicyClass(clazz) ? null : Collections.unmodifiableSet(fieldNames);
+    }
+
+    @Override
+    public String getClassNameForTypeId(String id) {
+        String typeName = typeNamesById.get(id);
+        return typeName == null || resolve(typeName) == NOT_FOUND ? null : typeName;
+    }
+
+    @Override
+    public String getTypeIdForClass(Class<?> clazz) {
+        PolicyEntry entry = getEntry(clazz);
+        return entry == null ? null : entry.typeId;
+    }
+
+    /**
+     * Returns the entry of the given class, unless the policy lists another class with the same name (e.g.
+     * loaded by another class loader).
+     */
+    private PolicyEntry getEntry(Class<?> clazz) {
+        PolicyEntry entry = entries.get(clazz.getName());
+        return entry == null || !isPolicyClass(clazz) ? null : entry;
+    }
+
+    private boolean isPolicyClass(Class<?> clazz) {
+        return resolve(clazz.getName()) == clazz;
+    }
+
+    private Class<?> resolve(String typeName) {
+        return resolvedClasses.computeIfAbsent(typeName, name -> {
+            try {
+                return Class.forName(name, false, classLoader);
+            } catch (ClassNotFoundException e) {
+                log.error("Class not found for type={} of serialization policy", name, e);
+                return NOT_FOUND;
+            }
+        });
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts what was decided about the serialization policy after the failed calls of a service.
+ *
+ * @see HasProxySettings#getPolicyRefreshCounters()
+ */
+public final class PolicyRefreshCounters {
+
+    public enum Decision {
+        /**
+         * The failure does not come from the serialization policy, so the policy was not checked.
+         */
+        NOT_POLICY_RELATED,
+        /**
+         * The policy was checked, fetching the policies of the module again.
+         */
+        FETCHED,
+        /**
+         * The failure may come from the policy, so the module was checked for a new compilation, and its
+         * policies were fetched again only in that case.
+         */
+        CHECKED_MODULE,
+        /**
+         * A check of the policy started by another failed call was in progress, and its outcome was used.
+         */
+        JOINED,
+        /**
+         * The policy was not checked, since the min interval since the last check has not elapsed.
+         */
+        SKIPPED_MIN_INTERVAL,
+    }
+
+    private final Map<Decision, LongAdder> counters = new EnumMap<>(Decision.class);
+
+
+    PolicyRefreshCounters() {
+        for (Decision decision : Decision.values()) {
+            counters.put(decision, new LongAdder());
+        }
+    }
+
+    public long get(Decision decision) {
+        return counters.get(decision).sum();
+    }
+
+    void increment(Decision decision) {
+        counters.get(decision).increment();
+    }
+
+    @Override
+    public String toString() {
+        return "PolicyRefreshCounters" + counters;
+    }
+}
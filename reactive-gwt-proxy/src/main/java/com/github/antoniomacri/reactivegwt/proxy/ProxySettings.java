@@ -42,6 +42,10 @@ public class ProxySettings implements HasProxySettings {
     InstantSource instantSource = InstantSource.system();
     int serializationPolicyFetchMinIntervalMillis = 300_000;
     HttpClient httpClient;
+    boolean responseCompressionEnabled = false;
+    int requestCompressionThreshold = -1;
+    final PolicyRefreshCounters policyRefreshCounters = new PolicyRefreshCounters();
+    final ResponseSizeCounters responseSizeCounters = new ResponseSizeCounters();
 
 
     public ProxySettings(String moduleBaseUrl, String serviceName) {
@@ -211,4 +215,36 @@ public class ProxySettings implements HasProxySettings {
         this.httpClient = httpClient;
         return this;
     }
+
+    @Override
+    public boolean isResponseCompressionEnabled() {
+        return responseCompressionEnabled;
+    }
+
+    @Override
+    public HasProxySettings setResponseCompressionEnabled(boolean responseCompressionEnabled) {
+        this.responseCompressionEnabled = responseCompressionEnabled;
+        return this;
+    }
+
+    @Override
+    public int getRequestCompressionThreshold() {
+        return requestCompressionThreshold;
+    }
+
+    @Override
+    public HasProxySettings setRequestCompressionThreshold(int requestCompressionThreshold) {
+        this.requestCompressionThreshold = requestCompressionThreshold;
+        return this;
+    }
+
+    @Override
+    public PolicyRefreshCounters getPolicyRefreshCounters() {
+        return policyRefreshCounters;
+    }
+
+    @Override
+    public ResponseSizeCounters getResponseSizeCounters() {
+        return responseSizeCounters;
+    }
 }
@@ -0,0 +1,87 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Collects the strong names (32 digits or uppercase letters) enclosed in the given quotes, in order, scanning
+ * the bytes of a response body as they arrive instead of decoding the whole body into a String.
+ * <p>
+ * Finds the same names as a {@code quote([A-Z0-9]){32}quote} regular expression: no multibyte UTF-8 sequence
+ * contains ASCII bytes, so scanning bytes is the same as scanning chars.
+ */
+final class QuotedNameScanner implements HttpResponse.BodySubscriber<List<String>> {
+    private static final int NAME_LENGTH = 32;
+
+    private final byte quote;
+    private final byte[] name = new byte[NAME_LENGTH];
+    private final List<String> names = new ArrayList<>();
+    private final CompletableFuture<List<String>> result = new CompletableFuture<>();
+    /**
+     * The number of name chars after an opening quote, or -1 when not within quotes.
+     */
+    private int length = -1;
+
+
+    QuotedNameScanner(char quote) {
+        this.quote = (byte) quote;
+    }
+
+    static HttpResponse.BodyHandler<List<String>> bodyHandler(char quote) {
+        return responseInfo -> new QuotedNameScanner(quote);
+    }
+
+    @Override
+    public CompletionStage<List<String>> getBody() {
+        return result;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+        for (ByteBuffer item : items) {
+            scan(item);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        result.complete(names);
+    }
+
+    void scan(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (length == NAME_LENGTH) {
+                if (b == quote) {
+                    // The closing quote cannot open another name
+                    names.add(new String(name, StandardCharsets.US_ASCII));
+                }
+                length = -1;
+            } else if (length >= 0 && (b >= 'A' && b <= 'Z' || b >= '0' && b <= '9')) {
+                name[length++] = b;
+            } else {
+                length = b == quote ? 0 : -1;
+            }
+        }
+    }
+
+    List<String> getNames() {
+        return names;
+    }
+}
@@ -47,6 +47,9 @@ public class ReactiveGWT {
      * It is similar to {@link com.google.gwt.core.client.GWT#create(Class)}. This method
      * assumes your service is annotated with {@link RemoteServiceRelativePath} (otherwise,
      * see {@link #suppressRelativePathWarning(boolean)}).
+     * <p>
+     * The proxies created this way for the same module share its serialization policies
+     * (see {@link RpcPolicyFinder#forModule(String)}).
      *
      * @param serviceIntf   the {@link RemoteService} (sync) interface to instantiate
      * @param moduleBaseURL the base url of the remote service, which is prepended to the
@@ -55,7 +58,7 @@ public class ReactiveGWT {
      */
     public static <ServiceIntfAsync, ServiceIntf extends RemoteService>
     ServiceIntfAsync create(Class<ServiceIntf> serviceIntf, String moduleBaseURL) {
-        RpcPolicyFinder policyFinder = new RpcPolicyFinder(moduleBaseURL);
+        RpcPolicyFinder policyFinder = RpcPolicyFinder.forModule(moduleBaseURL);
         return create(serviceIntf, new ProxySettings(moduleBaseURL, serviceIntf.getName(), policyFinder));
     }
 
@@ -15,6 +15,8 @@
  */
 package com.github.antoniomacri.reactivegwt.proxy;
 
+import com.github.antoniomacri.reactivegwt.proxy.PolicyRefreshCounters.Decision;
+import com.github.antoniomacri.reactivegwt.proxy.SyncClientSerializationStreamWriter.RequestPrefix;
 import com.github.antoniomacri.reactivegwt.proxy.exception.SyncProxyException;
 import com.github.antoniomacri.reactivegwt.proxy.exception.SyncProxyException.InfoType;
 import com.google.gwt.user.client.rpc.*;
@@ -30,11 +32,15 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.UndeclaredThrowableException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static java.util.Map.entry;
@@ -44,6 +50,10 @@ import static java.util.Map.entry;
  */
 public class RemoteServiceInvocationHandler implements InvocationHandler {
     private static final Logger log = LoggerFactory.getLogger(RemoteServiceInvocationHandler.class);
+    /**
+     * The body of the 500 responses of the GWT servlet, see {@code RPCServletUtils.writeResponseForUnexpectedFailure}.
+     */
+    private static final String GENERIC_FAILURE_MESSAGE = "The call failed on the server";
     private static final Map<Class<?>, ResponseReader> JPRIMITIVETYPE_TO_RESPONSEREADER = Map.ofEntries(
             entry(boolean.class, ResponseReader.BOOLEAN),
             entry(byte.class, ResponseReader.BYTE),
@@ -55,13 +65,24 @@ public class RemoteServiceInvocationHandler implements InvocationHandler {
             entry(short.class, ResponseReader.SHORT),
             entry(void.class, ResponseReader.VOID)
     );
+    private static final Map<Class<?>, ParamWriter> JPRIMITIVETYPE_TO_PARAMWRITER = Map.ofEntries(
+            entry(boolean.class, (streamWriter, paramValue) -> streamWriter.writeBoolean((Boolean) paramValue)),
+            entry(byte.class, (streamWriter, paramValue) -> streamWriter.writeByte((Byte) paramValue)),
+            entry(char.class, (streamWriter, paramValue) -> streamWriter.writeChar((Character) paramValue)),
+            entry(double.class, (streamWriter, paramValue) -> streamWriter.writeDouble((Double) paramValue)),
+            entry(float.class, (streamWriter, paramValue) -> streamWriter.writeFloat((Float) paramValue)),
+            entry(int.class, (streamWriter, paramValue) -> streamWriter.writeInt((Integer) paramValue)),
+            entry(long.class, (streamWriter, paramValue) -> streamWriter.writeLong((Long) paramValue)),
+            entry(short.class, (streamWriter, paramValue) -> streamWriter.writeShort((Short) paramValue))
+    );
 
 
     private final HasProxySettings settings;
     RpcToken token;
     String serviceEntryPoint;
     RpcTokenExceptionHandler rpcTokenExceptionHandler;
-    AtomicReference<Instant> lastPolicyFetchInstant = new AtomicReference<>(Instant.MIN);
+    private final AtomicReference<PolicyRefresh> lastPolicyRefresh = new AtomicReference<>(new PolicyRefresh(Instant.MIN, null));
+    private final Map<Method, InvocationPlan> invocationPlans = new ConcurrentHashMap<>();
 
 
     public RemoteServiceInvocationHandler(HasProxySettings settings) {
@@ -175,46 +196,15 @@ public class RemoteServiceInvocationHandler implements InvocationHandler {
 
     @SuppressWarnings("SameReturnValue")
     private <T> Object handleRemoteService(Method method, Object[] args) throws Throwable {
-        Class<?> remoteServiceIntf = method.getDeclaringClass();
-        String serviceAsyncIntfName = remoteServiceIntf.getCanonicalName();
-        assert serviceAsyncIntfName.endsWith("Async") : "The sync version of the service interface is not supported by the proxy";
-
-        String serviceIntfName = serviceAsyncIntfName.substring(0, serviceAsyncIntfName.length() - 5);
-        Class<?>[] paramTypes = method.getParameterTypes();
-        int paramCount = paramTypes.length - 1;
+        InvocationPlan plan = getInvocationPlan(method);
         @SuppressWarnings("unchecked")
-        AsyncCallback<T> callback = (AsyncCallback<T>) args[paramCount];
-
-        Class<?>[] syncParamTypes = new Class[paramCount];
-        System.arraycopy(paramTypes, 0, syncParamTypes, 0, paramCount);
-
-        Class<?> syncClass;
-        try {
-            syncClass = ClassLoading.loadClass(serviceIntfName);
-        } catch (ClassNotFoundException e) {
-            throw new InvocationException("There is no sync version of " + serviceIntfName + "Async");
-        }
-
-        Method syncMethod;
-        try {
-            syncMethod = syncClass.getMethod(method.getName(), syncParamTypes);
-        } catch (NoSuchMethodException nsme) {
-            StringBuilder params = new StringBuilder();
-            for (Class<?> cl : syncParamTypes) {
-                params.append(cl.getSimpleName()).append(",");
-            }
-            throw new NoSuchMethodException("No method " + method.getName() +
-                                            " in class " + syncClass.getSimpleName() +
-                                            " with params (" + params + ")");
-        }
-
-        Class<?> returnType = syncMethod.getReturnType();
+        AsyncCallback<T> callback = (AsyncCallback<T>) args[plan.paramCount];
 
         AtomicReference<RemoteServiceProxy> serviceProxyRef = new AtomicReference<>();
 
         settings.getPolicyFinder().getOrFetchPolicyNameAsync(settings.getServiceName(), settings.getExecutor())
                 .thenCompose(policyName ->
-                        this.<T>callRemoteService(serviceProxyRef, policyName, method, paramCount, paramTypes, args, returnType)
+                        this.<T>callRemoteService(serviceProxyRef, policyName, plan, args)
                 )
                 .handle((result, throwable) -> {
                     if (callback != null) {
@@ -242,66 +232,167 @@ public class RemoteServiceInvocationHandler implements InvocationHandler {
         return null;
     }
 
+    /**
+     * Returns the {@link InvocationPlan} for the given async method, building it on first use.
+     */
+    InvocationPlan getInvocationPlan(Method method) throws InvocationException, NoSuchMethodException {
+        InvocationPlan plan = invocationPlans.get(method);
+        if (plan == null) {
+            plan = InvocationPlan.create(method);
+            InvocationPlan existing = invocationPlans.putIfAbsent(method, plan);
+            if (existing != null) {
+                plan = existing;
+            }
+        }
+        return plan;
+    }
+
     private <T> CompletionStage<T> callRemoteService(
-            AtomicReference<RemoteServiceProxy> serviceProxyRef,
-            String policyName, Method method, int paramCount, Class<?>[] paramTypes, Object[] args, Class<?> returnType
+            AtomicReference<RemoteServiceProxy> serviceProxyRef, String policyName, InvocationPlan plan, Object[] args
     ) {
         SerializationPolicy policy = settings.getPolicyFinder().getSerializationPolicy(policyName);
 
         RemoteServiceProxy serviceProxy = new RemoteServiceProxy(settings, policyName, policy, this.token, this.rpcTokenExceptionHandler);
         serviceProxyRef.set(serviceProxy);
 
-        SerializationStreamWriter streamWriter = serviceProxy.createStreamWriter();
-        String payload = buildPayload(streamWriter, settings.getServiceName(), method, paramCount, paramTypes, args);
+        SyncClientSerializationStreamWriter streamWriter = createStreamWriter(serviceProxy, policyName, plan);
+        ByteBuffer payload = buildPayload(streamWriter, plan, args);
 
-        return serviceProxy.<T>doInvokeAsync(getReaderFor(returnType), payload).exceptionallyCompose(t -> {
+        return serviceProxy.<T>doInvokeAsync(plan.responseReader, payload).exceptionallyCompose(t -> {
             Throwable throwable = t;
             if (t instanceof CompletionException) {
                 throwable = throwable.getCause();
             }
-            if (throwable instanceof StatusCodeException sce && sce.getStatusCode() == 500) {
-                Instant lastInstant = lastPolicyFetchInstant.get();
-                Instant now = settings.getInstantSource().instant();
-                if (lastInstant.plusMillis(settings.getSerializationPolicyFetchMinIntervalMillis()).isAfter(now)) {
-                    log.warn("Received Internal Server Error from server, but not checking if serialization policy changed since min interval has not elapsed ({} vs {})",
-                            lastInstant, now);
-                    return CompletableFuture.failedStage(t);
-                } else {
-                    log.warn("Received Internal Server Error from server, checking if serialization policy changed...");
-                    return settings.getPolicyFinder().fetchPolicyNameAsync(settings.getServiceName(), settings.getExecutor()).thenCompose(newPolicyName -> {
-                        lastPolicyFetchInstant.compareAndSet(lastInstant, now);
-                        if (newPolicyName != null && !newPolicyName.equals(policyName)) {
-                            log.warn("Serialization policy actually changed, retrying service call...");
-                            // Try again with the new serialization policy
-                            return callRemoteService(serviceProxyRef, newPolicyName, method, paramCount, paramTypes, args, returnType);
-                        } else {
-                            log.info("Serialization policy did not change, not retrying service call");
-                            return CompletableFuture.failedStage(t);
-                        }
-                    });
-                }
+            boolean incompatible = throwable instanceof IncompatibleRemoteServiceException;
+            if (incompatible || isGenericServerFailure(throwable)) {
+                return refreshPolicyName(throwable, !incompatible).exceptionally(e -> {
+                    log.warn("Could not check if serialization policy changed", e);
+                    return null;
+                }).thenCompose(newPolicyName -> {
+                    if (newPolicyName != null && !newPolicyName.equals(policyName)) {
+                        log.warn("Serialization policy actually changed, retrying service call...");
+                        // Try again with the new serialization policy
+                        return callRemoteService(serviceProxyRef, newPolicyName, plan, args);
+                    } else {
+                        log.info("Serialization policy did not change, not retrying service call");
+                        return CompletableFuture.failedStage(t);
+                    }
+                });
             } else {
+                if (throwable instanceof StatusCodeException) {
+                    settings.getPolicyRefreshCounters().increment(Decision.NOT_POLICY_RELATED);
+                }
                 return CompletableFuture.failedStage(t);
             }
         });
     }
 
-    private String buildPayload(SerializationStreamWriter streamWriter, String serviceIntfName, Method method, int paramCount, Class<?>[] paramTypes, Object[] args) {
-        try {
-            streamWriter.writeString(serviceIntfName);
-            streamWriter.writeString(method.getName());
+    /**
+     * Returns whether the given failure is the generic 500 of the GWT servlet, which may be caused by a
+     * serialization policy unknown to the server (when it cannot encode the response) as by any other error.
+     * <p>
+     * Any other 500 (e.g. with a body from a proxy or an error page) is not related to the policy, while the
+     * servlet answers with an {@link IncompatibleRemoteServiceException} when it cannot decode the request.
+     */
+    static boolean isGenericServerFailure(Throwable throwable) {
+        if (throwable instanceof StatusCodeException sce && sce.getStatusCode() == 500) {
+            String encodedResponse = sce.getEncodedResponse();
+            return encodedResponse == null || encodedResponse.isBlank()
+                   || encodedResponse.startsWith(GENERIC_FAILURE_MESSAGE);
+        }
+        return false;
+    }
 
-            streamWriter.writeInt(paramCount);
-            for (int i = 0; i < paramCount; i++) {
-                // streamWriter.writeString(computeBinaryClassName(paramTypes[i]));
-                streamWriter.writeString(SerializabilityUtil.getSerializedTypeName(paramTypes[i]));
+    /**
+     * Checks if the serialization policy of the service changed, after a failure which may be caused by it.
+     * <p>
+     * Unless the failure surely comes from the policy, only the module is checked for a new compilation, so
+     * that a server failing for any other reason does not cause the policies to be fetched again.
+     * <p>
+     * Concurrent failures share a single check: those arriving while it is in progress, or before the min
+     * interval has elapsed since it started, get its outcome instead of fetching the policies again.
+     */
+    private CompletionStage<String> refreshPolicyName(Throwable failure, boolean moduleCheckOnly) {
+        while (true) {
+            PolicyRefresh last = lastPolicyRefresh.get();
+            Instant now = settings.getInstantSource().instant();
+            if (last.instant.plusMillis(settings.getSerializationPolicyFetchMinIntervalMillis()).isAfter(now)) {
+                if (last.policyName.isDone()) {
+                    settings.getPolicyRefreshCounters().increment(Decision.SKIPPED_MIN_INTERVAL);
+                    log.warn("Received {} from server, but not checking if serialization policy changed since min interval has not elapsed ({} vs {})",
+                            failure.getClass().getSimpleName(), last.instant, now);
+                } else {
+                    settings.getPolicyRefreshCounters().increment(Decision.JOINED);
+                    log.warn("Received {} from server, joining the check of serialization policy in progress...",
+                            failure.getClass().getSimpleName());
+                }
+                return last.policyName;
             }
-            for (int i = 0; i < paramCount; i++) {
-                writeParam(streamWriter, paramTypes[i], args[i]);
+            CompletableFuture<String> policyName = new CompletableFuture<>();
+            if (lastPolicyRefresh.compareAndSet(last, new PolicyRefresh(now, policyName))) {
+                settings.getPolicyRefreshCounters().increment(moduleCheckOnly ? Decision.CHECKED_MODULE : Decision.FETCHED);
+                log.warn("Received {} from server, checking if serialization policy changed...", failure.getClass().getSimpleName());
+                RpcPolicyFinder policyFinder = settings.getPolicyFinder();
+                (moduleCheckOnly
+                        ? policyFinder.checkPolicyNameAsync(settings.getServiceName(), settings.getExecutor())
+                        : policyFinder.fetchPolicyNameAsync(settings.getServiceName(), settings.getExecutor()))
+                        .whenComplete((newPolicyName, e) -> {
+                            if (e != null) {
+                                policyName.completeExceptionally(e);
+                            } else {
+                                policyName.complete(newPolicyName);
+                            }
+                        });
+                return policyName;
+            }
+        }
+    }
+
+    /**
+     * Returns a writer where the invariant beginning of the request for the given method (the
+     * serialization policy info and the method signature) has already been written.
+     * <p>
+     * Unless an {@link RpcToken} has to be sent, that beginning is encoded once per serialization
+     * policy and reused: a new policy name (after the policy of the server changed) discards it.
+     */
+    private SyncClientSerializationStreamWriter createStreamWriter(RemoteServiceProxy serviceProxy, String policyName, InvocationPlan plan) {
+        if (this.token != null) {
+            SyncClientSerializationStreamWriter streamWriter = serviceProxy.createStreamWriter();
+            writeMethodSignature(streamWriter, settings.getServiceName(), plan);
+            return streamWriter;
+        }
+
+        RequestPrefix prefix = plan.requestPrefix;
+        if (prefix == null || !prefix.getSerializationPolicyStrongName().equals(policyName)) {
+            SyncClientSerializationStreamWriter streamWriter = serviceProxy.createStreamWriter();
+            writeMethodSignature(streamWriter, settings.getServiceName(), plan);
+            prefix = streamWriter.toRequestPrefix();
+            plan.requestPrefix = prefix;
+            log.debug("Encoded request prefix for method={} and policyName={}", plan.methodName, policyName);
+        }
+        return serviceProxy.createStreamWriter(prefix);
+    }
+
+    private static void writeMethodSignature(SyncClientSerializationStreamWriter streamWriter, String serviceIntfName, InvocationPlan plan) {
+        streamWriter.writeString(serviceIntfName);
+        streamWriter.writeString(plan.methodName);
+
+        streamWriter.writeInt(plan.paramCount);
+        for (String paramTypeName : plan.paramTypeNames) {
+            streamWriter.writeString(paramTypeName);
+        }
+    }
+
+    private ByteBuffer buildPayload(SyncClientSerializationStreamWriter streamWriter, InvocationPlan plan, Object[] args) {
+        try {
+            for (int i = 0; i < plan.paramCount; i++) {
+                plan.paramWriters[i].write(streamWriter, args[i]);
             }
 
-            String payload = streamWriter.toString();
-            log.debug("Payload: {}", payload);
+            ByteBuffer payload = streamWriter.toByteBuffer();
+            if (log.isDebugEnabled()) {
+                log.debug("Payload: {}", StandardCharsets.US_ASCII.decode(payload.duplicate()));
+            }
             return payload;
         } catch (SerializationException e) {
             throw new UndeclaredThrowableException(e);
@@ -309,7 +400,7 @@ public class RemoteServiceInvocationHandler implements InvocationHandler {
     }
 
 
-    private ResponseReader getReaderFor(Class<?> type) {
+    private static ResponseReader getReaderFor(Class<?> type) {
         log.trace("Getting reader for: " + type.getName());
         ResponseReader primitiveResponseReader = JPRIMITIVETYPE_TO_RESPONSEREADER.get(type);
         if (primitiveResponseReader != null) {
@@ -326,28 +417,105 @@ public class RemoteServiceInvocationHandler implements InvocationHandler {
         return ResponseReader.OBJECT;
     }
 
-    private void writeParam(SerializationStreamWriter streamWriter, Class<?> paramType, Object paramValue)
-            throws SerializationException {
-        if (paramType == boolean.class) {
-            streamWriter.writeBoolean((Boolean) paramValue);
-        } else if (paramType == byte.class) {
-            streamWriter.writeByte((Byte) paramValue);
-        } else if (paramType == char.class) {
-            streamWriter.writeChar((Character) paramValue);
-        } else if (paramType == double.class) {
-            streamWriter.writeDouble((Double) paramValue);
-        } else if (paramType == float.class) {
-            streamWriter.writeFloat((Float) paramValue);
-        } else if (paramType == int.class) {
-            streamWriter.writeInt((Integer) paramValue);
-        } else if (paramType == long.class) {
-            streamWriter.writeLong((Long) paramValue);
-        } else if (paramType == short.class) {
-            streamWriter.writeShort((Short) paramValue);
-        } else if (paramType == String.class) {
-            streamWriter.writeString((String) paramValue);
-        } else {
-            streamWriter.writeObject(paramValue);
+    private static ParamWriter getWriterFor(Class<?> paramType) {
+        ParamWriter primitiveParamWriter = JPRIMITIVETYPE_TO_PARAMWRITER.get(paramType);
+        if (primitiveParamWriter != null) {
+            return primitiveParamWriter;
+        }
+
+        if (paramType == String.class) {
+            return (streamWriter, paramValue) -> streamWriter.writeString((String) paramValue);
+        }
+
+        return SerializationStreamWriter::writeObject;
+    }
+
+
+    @FunctionalInterface
+    interface ParamWriter {
+        void write(SerializationStreamWriter streamWriter, Object paramValue) throws SerializationException;
+    }
+
+    /**
+     * The latest check of the serialization policy name, and when it started.
+     */
+    private static final class PolicyRefresh {
+        final Instant instant;
+        final CompletableFuture<String> policyName;
+
+        PolicyRefresh(Instant instant, CompletableFuture<String> policyName) {
+            this.instant = instant;
+            this.policyName = policyName;
+        }
+    }
+
+    /**
+     * Everything needed to serialize a call to an async service method and to read its response,
+     * resolved once per {@link Method} so that the hot path does not repeat any reflective lookup.
+     */
+    static final class InvocationPlan {
+        final Method syncMethod;
+        final String methodName;
+        final int paramCount;
+        final String[] paramTypeNames;
+        final ParamWriter[] paramWriters;
+        final ResponseReader responseReader;
+
+        /**
+         * The encoded beginning of requests for this method, along with the policy it was encoded with.
+         */
+        volatile RequestPrefix requestPrefix;
+
+        private InvocationPlan(Method syncMethod, String[] paramTypeNames, ParamWriter[] paramWriters,
+                               ResponseReader responseReader) {
+            this.syncMethod = syncMethod;
+            this.methodName = syncMethod.getName();
+            this.paramCount = paramTypeNames.length;
+            this.paramTypeNames = paramTypeNames;
+            this.paramWriters = paramWriters;
+            this.responseReader = responseReader;
+        }
+
+        static InvocationPlan create(Method method) throws InvocationException, NoSuchMethodException {
+            Class<?> remoteServiceIntf = method.getDeclaringClass();
+            String serviceAsyncIntfName = remoteServiceIntf.getCanonicalName();
+            assert serviceAsyncIntfName.endsWith("Async") : "The sync version of the service interface is not supported by the proxy";
+
+            String serviceIntfName = serviceAsyncIntfName.substring(0, serviceAsyncIntfName.length() - 5);
+            Class<?>[] paramTypes = method.getParameterTypes();
+            int paramCount = paramTypes.length - 1;
+
+            Class<?>[] syncParamTypes = Arrays.copyOf(paramTypes, paramCount);
+
+            Class<?> syncClass;
+            try {
+                syncClass = ClassLoading.loadClass(serviceIntfName);
+            } catch (ClassNotFoundException e) {
+                throw new InvocationException("There is no sync version of " + serviceIntfName + "Async");
+            }
+
+            Method syncMethod;
+            try {
+                syncMethod = syncClass.getMethod(method.getName(), syncParamTypes);
+            } catch (NoSuchMethodException nsme) {
+                StringBuilder params = new StringBuilder();
+                for (Class<?> cl : syncParamTypes) {
+                    params.append(cl.getSimpleName()).append(",");
+                }
+                throw new NoSuchMethodException("No method " + method.getName() +
+                                                " in class " + syncClass.getSimpleName() +
+                                                " with params (" + params + ")");
+            }
+
+            String[] paramTypeNames = new String[paramCount];
+            ParamWriter[] paramWriters = new ParamWriter[paramCount];
+            for (int i = 0; i < paramCount; i++) {
+                paramTypeNames[i] = SerializabilityUtil.getSerializedTypeName(syncParamTypes[i]);
+                paramWriters[i] = getWriterFor(syncParamTypes[i]);
+            }
+
+            log.debug("Created invocation plan for method={} of service={}", method.getName(), serviceIntfName);
+            return new InvocationPlan(syncMethod, paramTypeNames, paramWriters, getReaderFor(syncMethod.getReturnType()));
         }
     }
 
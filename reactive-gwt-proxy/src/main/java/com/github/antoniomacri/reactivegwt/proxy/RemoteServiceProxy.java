@@ -27,8 +27,10 @@ import org.slf4j.LoggerFactory;
 import java.lang.reflect.UndeclaredThrowableException;
 import java.net.*;
 import java.net.http.HttpRequest;
-import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletionStage;
 
 /**
@@ -51,6 +53,14 @@ public class RemoteServiceProxy implements SerializationStreamFactory {
         return encodedResponse.startsWith("//EX");
     }
 
+    public static boolean isReturnValue(RpcResponseBody encodedResponse) {
+        return encodedResponse.startsWith("//OK");
+    }
+
+    public static boolean isThrownException(RpcResponseBody encodedResponse) {
+        return encodedResponse.startsWith("//EX");
+    }
+
     private final CookieManager cookieManager;
     private final String moduleBaseURL;
     private final String remoteServiceURL;
@@ -91,6 +101,12 @@ public class RemoteServiceProxy implements SerializationStreamFactory {
         return reader;
     }
 
+    public SyncClientSerializationStreamReader createStreamReader(RpcResponseBody encoded) throws SerializationException {
+        SyncClientSerializationStreamReader reader = new SyncClientSerializationStreamReader(this.serializationPolicy);
+        reader.prepareToRead(encoded);
+        return reader;
+    }
+
     @Override
     public SyncClientSerializationStreamWriter createStreamWriter() {
         SyncClientSerializationStreamWriter streamWriter = new SyncClientSerializationStreamWriter(
@@ -101,6 +117,18 @@ public class RemoteServiceProxy implements SerializationStreamFactory {
         return streamWriter;
     }
 
+    /**
+     * Creates a writer whose request starts with the given (previously captured) prefix.
+     */
+    public SyncClientSerializationStreamWriter createStreamWriter(SyncClientSerializationStreamWriter.RequestPrefix prefix) {
+        SyncClientSerializationStreamWriter streamWriter = new SyncClientSerializationStreamWriter(
+                this.moduleBaseURL, this.serializationPolicyName, this.serializationPolicy, this.rpcToken,
+                settings.getSerializationStreamVersion());
+        streamWriter.prepareToWrite(prefix);
+
+        return streamWriter;
+    }
+
     private boolean requiresSecuredProtocol(URL serviceUrl) {
         ServiceAuthenticator authenticator = settings.getServiceAuthenticator();
         if (authenticator instanceof TestModeHostVerifier) {
@@ -111,20 +139,26 @@ public class RemoteServiceProxy implements SerializationStreamFactory {
         return !serviceUrl.getProtocol().equalsIgnoreCase("https");
     }
 
-    public <T> CompletionStage<T> doInvokeAsync(RequestCallbackAdapter.ResponseReader responseReader, String requestData) {
+    public <T> CompletionStage<T> doInvokeAsync(RequestCallbackAdapter.ResponseReader responseReader, ByteBuffer requestData) {
         URI cookieUri = URI.create("http://" + URI.create(moduleBaseURL).getHost());
         HttpRequest request = createHttpRequest(requestData, cookieUri);
 
-        return settings.getHttpClient().sendAsync(request, BodyHandlers.ofString())
+        return settings.getHttpClient().sendAsync(request, RpcResponseBody.bodyHandler())
                 .exceptionally(e -> {
                     throw new InvocationException("IOException while receiving RPC response", e);
                 })
                 .thenApply(response -> {
                     int statusCode = response.statusCode();
-                    String encodedResponse = response.body();
+                    RpcResponseBody encodedResponse = response.body();
+                    if (encodedResponse != null) {
+                        settings.getResponseSizeCounters().add(encodedResponse.getEncodedLength(), encodedResponse.length());
+                    }
 
                     if (log.isDebugEnabled()) {
                         log.debug("Received response with statusCode={} and payload=\"{}\"", statusCode, encodedResponse);
+                        if (encodedResponse != null) {
+                            log.debug("Received response of size={} with encodedSize={}", encodedResponse.length(), encodedResponse.getEncodedLength());
+                        }
                         log.debug("Received cookies={}", cookieManager.getCookieStore().get(cookieUri));
                     } else {
                         log.debug("Received response with statusCode={}", statusCode);
@@ -134,12 +168,12 @@ public class RemoteServiceProxy implements SerializationStreamFactory {
                         // Do not provide full response data
                         throw new StatusCodeException(Response.SC_NOT_FOUND, "Not Found", null);
                     } else if (statusCode != HttpURLConnection.HTTP_OK) {
-                        throw new StatusCodeException(statusCode, encodedResponse);
+                        throw new StatusCodeException(statusCode, Objects.toString(encodedResponse, null));
                     } else if (encodedResponse == null) {
                         // This can happen if the XHR is interrupted by the server dying
                         throw new InvocationException("No response payload");
                     } else if (isReturnValue(encodedResponse)) {
-                        encodedResponse = encodedResponse.substring(4);
+                        encodedResponse = encodedResponse.subSequence(4, encodedResponse.length());
                         try {
                             // noinspection unchecked
                             return (T) responseReader.read(createStreamReader(encodedResponse));
@@ -147,7 +181,7 @@ public class RemoteServiceProxy implements SerializationStreamFactory {
                             throw new RuntimeException(e);
                         }
                     } else if (isThrownException(encodedResponse)) {
-                        encodedResponse = encodedResponse.substring(4);
+                        encodedResponse = encodedResponse.subSequence(4, encodedResponse.length());
                         Throwable throwable;
                         try {
                             throwable = (Throwable) createStreamReader(encodedResponse).readObject();
@@ -172,7 +206,7 @@ public class RemoteServiceProxy implements SerializationStreamFactory {
                 });
     }
 
-    private HttpRequest createHttpRequest(String requestData, URI cookieUri) {
+    private HttpRequest createHttpRequest(ByteBuffer requestData, URI cookieUri) {
         // Auto apply authenticator if available. Makes it
         // possible that if the authenticator's values change (such as access
         // tokens that are refreshed), the client will not need to re-apply the
@@ -184,7 +218,8 @@ public class RemoteServiceProxy implements SerializationStreamFactory {
         }
 
         if (log.isDebugEnabled()) {
-            log.debug("Sending request to requestUrl={} with payload={}", this.remoteServiceURL, requestData);
+            log.debug("Sending request to requestUrl={} with payload={}", this.remoteServiceURL,
+                    StandardCharsets.US_ASCII.decode(requestData.duplicate()));
         } else {
             log.info("Sending request to requestUrl={}", this.remoteServiceURL);
         }
@@ -198,12 +233,26 @@ public class RemoteServiceProxy implements SerializationStreamFactory {
             throw new RuntimeException(e);
         }
 
-        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder().POST(HttpRequest.BodyPublishers.ofString(requestData))
+        int compressionThreshold = settings.getRequestCompressionThreshold();
+        boolean compressRequest = compressionThreshold >= 0 && requestData.remaining() > compressionThreshold;
+        HttpRequest.BodyPublisher bodyPublisher = compressRequest
+                ? new GzipBodyPublisher(requestData)
+                : HttpRequest.BodyPublishers.ofByteArray(
+                requestData.array(), requestData.arrayOffset() + requestData.position(), requestData.remaining());
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder().POST(bodyPublisher)
                 .uri(uri)
                 .header(RpcRequestBuilder.STRONG_NAME_HEADER, this.serializationPolicyName)
                 .header(RpcRequestBuilder.MODULE_BASE_HEADER, this.moduleBaseURL)
                 .header("Content-Type", "text/x-gwt-rpc; charset=utf-8");
 
+        if (compressRequest) {
+            requestBuilder.header("Content-Encoding", "gzip");
+        }
+
+        if (settings.isResponseCompressionEnabled()) {
+            requestBuilder.header("Accept-Encoding", "gzip, deflate");
+        }
+
         if (settings.getOAuth2IdToken() != null) {
             if (requiresSecuredProtocol(url)) {
                 throw new SecurityException(
@@ -0,0 +1,51 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the bytes of the responses received by a service, both as received and once inflated, so that
+ * the saving of compressed responses can be measured.
+ *
+ * @see HasProxySettings#getResponseSizeCounters()
+ * @see HasProxySettings#setResponseCompressionEnabled(boolean)
+ */
+public final class ResponseSizeCounters {
+    private final LongAdder responses = new LongAdder();
+    private final LongAdder encodedBytes = new LongAdder();
+    private final LongAdder decodedBytes = new LongAdder();
+
+
+    ResponseSizeCounters() {
+    }
+
+    public long getResponses() {
+        return responses.sum();
+    }
+
+    /**
+     * Returns the number of bytes actually received, which is less than {@link #getDecodedBytes()} when
+     * responses were compressed.
+     */
+    public long getEncodedBytes() {
+        return encodedBytes.sum();
+    }
+
+    /**
+     * Returns the number of bytes of the responses once inflated.
+     */
+    public long getDecodedBytes() {
+        return decodedBytes.sum();
+    }
+
+    void add(long encodedLength, long decodedLength) {
+        responses.increment();
+        encodedBytes.add(encodedLength);
+        decodedBytes.add(decodedLength);
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseSizeCounters{responses=" + responses + ", encodedBytes=" + encodedBytes
+               + ", decodedBytes=" + decodedBytes + "}";
+    }
+}
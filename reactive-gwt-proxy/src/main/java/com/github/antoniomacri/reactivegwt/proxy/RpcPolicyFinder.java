@@ -22,15 +22,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.StringReader;
+import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
 import java.text.ParseException;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -41,17 +46,97 @@ public class RpcPolicyFinder {
     private static final String GWT_PRC_POLICY_FILE_EXT = ".gwt.rpc";
     private static final Pattern PERMUTATION_NAME_PATTERN = Pattern.compile("'([A-Z0-9]){32}'");
     private static final Pattern CACHE_JS_FILE_PATTERN = Pattern.compile("([A-Z0-9]){32}\\.cache\\.js");
-    private static final Pattern POLICY_NAME_DOUBLE_QUOTES_PATTERN = Pattern.compile("\"([A-Z0-9]){32}\"");
-    private static final Pattern POLICY_NAME_SINGLE_QUOTES_PATTERN = Pattern.compile("'([A-Z0-9]){32}'");
     private static final ExecutorService DEFAULT_EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final int DEFAULT_MAX_CONCURRENT_DOWNLOADS = 4;
+    private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final ConcurrentMap<String, RpcPolicyFinder> SHARED_FINDERS = new ConcurrentHashMap<>();
+    /**
+     * The policies parsed by any finder, by the class loader they load classes from and then by policy name:
+     * being a hash of the content, the name identifies the policy across modules too. Entries are dropped once
+     * no finder uses them anymore, and do not keep the class loaders alive.
+     */
+    private static final Map<ClassLoader, ConcurrentMap<String, WeakReference<SerializationPolicy>>> PARSED_POLICIES =
+            Collections.synchronizedMap(new WeakHashMap<>());
 
     private final String moduleBaseURL;
-    private final Map<String, String> policyNameByService = new ConcurrentHashMap<>();
-    private final Map<String, SerializationPolicy> policyByName = new ConcurrentHashMap<>();
+    /**
+     * The class loader the policies are resolved against: the context one of whoever created the finder, since
+     * the policies may be parsed on any thread.
+     */
+    private final ClassLoader classLoader;
+    private final AtomicReference<PolicySnapshot> snapshot = new AtomicReference<>(PolicySnapshot.EMPTY);
+    /**
+     * The fetch in progress, if any, which completes with whether its discovery stopped early.
+     */
+    private final AtomicReference<CompletableFuture<Boolean>> inFlightFetch = new AtomicReference<>();
+    private final SerializationPolicyStore policyStore;
+    private volatile boolean policyStoreLoaded;
+    private volatile ResourceVersion noCacheJsVersion;
+    /**
+     * The nocache.js the known policies were discovered from, to tell a new compilation when the server sends
+     * no validators.
+     */
+    private volatile String noCacheJsContent;
+    private final Set<String> registeredServices = ConcurrentHashMap.newKeySet();
+    private final Set<String> nonPolicyNames = ConcurrentHashMap.newKeySet();
+    private volatile int maxConcurrentDownloads = DEFAULT_MAX_CONCURRENT_DOWNLOADS;
+    private volatile Duration requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+    private ScheduledFuture<?> watch;
+    private ScheduledExecutorService watchScheduler;
 
 
     public RpcPolicyFinder(String moduleBaseURL) {
+        this(moduleBaseURL, null);
+    }
+
+    /**
+     * Creates a finder which saves the discovered policies into the given store, and starts from the policies
+     * found there: these are used right away while the policies of the module are fetched again in background.
+     */
+    public RpcPolicyFinder(String moduleBaseURL, SerializationPolicyStore policyStore) {
         this.moduleBaseURL = moduleBaseURL.trim();
+        this.classLoader = Thread.currentThread().getContextClassLoader();
+        this.policyStore = policyStore;
+    }
+
+    /**
+     * Returns the finder shared by all the proxies of the given module in this process, creating it if needed,
+     * so that the policies of the module are discovered and kept in memory only once.
+     * <p>
+     * The finder starts from the policies bundled for the module on the classpath, if any
+     * (see {@link ClasspathSerializationPolicyStore#forModule(String)}), and otherwise without any store.
+     */
+    public static RpcPolicyFinder forModule(String moduleBaseURL) {
+        return forModule(moduleBaseURL, ClasspathSerializationPolicyStore::forModule);
+    }
+
+    /**
+     * Like {@link #forModule(String)}, but the finder uses the store returned by the given factory for the
+     * module base URL, for example {@code url -> DirectorySerializationPolicyStore.forModule(directory, url)},
+     * or none if the factory returns null.
+     * The factory is used only if the shared finder does not exist yet: otherwise the existing finder, with its
+     * own store, is returned. The result can be passed to
+     * {@link ProxySettings#ProxySettings(String, String, RpcPolicyFinder)}.
+     */
+    public static RpcPolicyFinder forModule(String moduleBaseURL, Function<String, SerializationPolicyStore> policyStoreFactory) {
+        return SHARED_FINDERS.computeIfAbsent(moduleBaseURL.trim(),
+                url -> new RpcPolicyFinder(url, policyStoreFactory.apply(url)));
+    }
+
+    /**
+     * Forgets the finder shared for the given module, if any, and stops its watching: the next call to
+     * {@link #forModule(String)} creates a new one. To be called when the module is not used anymore, for example
+     * when undeploying the application using it, so that the finder does not keep its classes in memory.
+     *
+     * @return whether a shared finder was removed
+     */
+    public static boolean removeModule(String moduleBaseURL) {
+        RpcPolicyFinder finder = SHARED_FINDERS.remove(moduleBaseURL.trim());
+        if (finder == null) {
+            return false;
+        }
+        finder.stopWatching();
+        return true;
     }
 
     public String getOrFetchPolicyName(String serviceName) {
@@ -63,7 +148,20 @@ public class RpcPolicyFinder {
     }
 
     public CompletionStage<String> getOrFetchPolicyNameAsync(String serviceName, Executor executor) {
-        String policyName = policyNameByService.get(serviceName);
+        registeredServices.add(serviceName);
+        String policyName = snapshot.get().policyNameByService.get(serviceName);
+        if (policyName == null && policyStore != null && !policyStoreLoaded && loadPolicyStore()) {
+            policyName = snapshot.get().policyNameByService.get(serviceName);
+            if (policyName != null && policyStore.needsRevalidation()) {
+                log.info("Using stored serialization policy={} for service={}, revalidating in background", policyName, serviceName);
+                joinOrFetchSerializationPoliciesAsync(executor, false).exceptionally(e -> {
+                    log.warn("Error while revalidating stored serialization policies", e);
+                    return null;
+                });
+            } else if (policyName != null) {
+                log.info("Using stored serialization policy={} for service={}", policyName, serviceName);
+            }
+        }
         if (policyName != null) {
             return CompletableFuture.completedFuture(policyName);
         } else {
@@ -71,60 +169,315 @@ public class RpcPolicyFinder {
         }
     }
 
+    /**
+     * Fetches the serialization policies of the module again, then returns the policy name for the given service.
+     * <p>
+     * Callers arriving while a fetch is already in progress join it instead of starting another one, so that
+     * at most one discovery runs at a time.
+     */
     public CompletionStage<String> fetchPolicyNameAsync(String serviceName, Executor executor) {
-        return fetchSerializationPoliciesAsync(executor).thenApply(ignored -> {
-            String newPolicyName = policyNameByService.get(serviceName);
-            return newPolicyName;
+        registeredServices.add(serviceName);
+        return joinOrFetchSerializationPoliciesAsync(executor, false).thenCompose(stoppedEarly -> {
+            String newPolicyName = snapshot.get().policyNameByService.get(serviceName);
+            if (newPolicyName == null && stoppedEarly) {
+                // The joined fetch stopped before this service was registered: any fetch starting from now on
+                // goes on until it is resolved
+                log.debug("Fetching serialization policies again for service={}", serviceName);
+                return joinOrFetchSerializationPoliciesAsync(executor, false)
+                        .thenApply(ignored -> snapshot.get().policyNameByService.get(serviceName));
+            }
+            return CompletableFuture.completedFuture(newPolicyName);
+        });
+    }
+
+    /**
+     * Checks if the module was compiled again, fetching its serialization policies only in that case, then
+     * returns the policy name for the given service.
+     * <p>
+     * Cheaper than {@link #fetchPolicyNameAsync(String, Executor)} when the module did not change: only its
+     * nocache.js is requested, conditionally if the server sent validators for it.
+     */
+    public CompletionStage<String> checkPolicyNameAsync(String serviceName, Executor executor) {
+        registeredServices.add(serviceName);
+        return joinOrFetchSerializationPoliciesAsync(executor, true).thenCompose(stoppedEarly -> {
+            String policyName = snapshot.get().policyNameByService.get(serviceName);
+            if (policyName == null) {
+                return fetchPolicyNameAsync(serviceName, executor);
+            }
+            return CompletableFuture.completedFuture(policyName);
         });
     }
 
     public SerializationPolicy getSerializationPolicy(String policyName) {
-        return policyByName.get(policyName);
+        return snapshot.get().policyByName.get(policyName);
+    }
+
+    /**
+     * Returns the content of the given policy file as fetched from the module, e.g. to precompile it with
+     * {@link SerializationPolicyLoader#compile(String)}.
+     */
+    public String getPolicyContent(String policyName) {
+        return getPolicyContent(snapshot.get(), policyName);
+    }
+
+    /**
+     * Returns the content of the given known policy, reading it from the store if the policy was loaded from
+     * its binary form.
+     */
+    private String getPolicyContent(PolicySnapshot known, String policyName) {
+        String policyContent = known.policyContentByName.get(policyName);
+        if (policyContent == null && policyStore != null && known.policyByName.containsKey(policyName)) {
+            try {
+                policyContent = policyStore.loadContent(policyName);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Error while loading the content of stored serialization policy={}", policyName, e);
+            }
+        }
+        return policyContent;
+    }
+
+    /**
+     * Returns the version of the known policies, which is incremented every time they change.
+     */
+    public long getPoliciesVersion() {
+        return snapshot.get().version;
+    }
+
+    public int getMaxConcurrentDownloads() {
+        return maxConcurrentDownloads;
+    }
+
+    /**
+     * Sets how many policy files may be downloaded at once while discovering the policies of the module.
+     */
+    public void setMaxConcurrentDownloads(int maxConcurrentDownloads) {
+        if (maxConcurrentDownloads < 1) {
+            throw new IllegalArgumentException("maxConcurrentDownloads must be positive: " + maxConcurrentDownloads);
+        }
+        this.maxConcurrentDownloads = maxConcurrentDownloads;
+    }
+
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * Sets how long connecting to the module, and then every request made while fetching its policies, may
+     * take: a request which does not answer in time fails the fetch, so that later calls can fetch again.
+     */
+    public void setRequestTimeout(Duration requestTimeout) {
+        if (requestTimeout.isNegative() || requestTimeout.isZero()) {
+            throw new IllegalArgumentException("requestTimeout must be positive: " + requestTimeout);
+        }
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Checks the module for a new compilation every given period, in background on a daemon thread, so that
+     * new policies are loaded before any call fails because of the old ones. The new policies replace the
+     * known ones all at once: calls in progress keep the policy they started with, new calls use the new one.
+     */
+    public synchronized void startWatching(Duration period) {
+        checkWatchPeriod(period);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rpc-policy-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        startWatching(period, scheduler);
+        watchScheduler = scheduler;
+    }
+
+    /**
+     * Like {@link #startWatching(Duration)}, but checks the module (and runs the discovery) on the given scheduler.
+     */
+    public synchronized void startWatching(Duration period, ScheduledExecutorService scheduler) {
+        checkWatchPeriod(period);
+        stopWatching();
+        long periodMillis = period.toMillis();
+        watch = scheduler.scheduleWithFixedDelay(() -> checkForNewPolicies(scheduler), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void checkWatchPeriod(Duration period) {
+        if (period.toMillis() < 1) {
+            throw new IllegalArgumentException("period must be at least one millisecond: " + period);
+        }
+    }
+
+    public synchronized void stopWatching() {
+        if (watch != null) {
+            watch.cancel(false);
+            watch = null;
+        }
+        if (watchScheduler != null) {
+            watchScheduler.shutdownNow();
+            watchScheduler = null;
+        }
+    }
+
+    private void checkForNewPolicies(Executor executor) {
+        long version = snapshot.get().version;
+        // Not waited for: a slow discovery is joined by the next checks rather than overlapped
+        joinOrFetchSerializationPoliciesAsync(executor, false).whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                log.warn("Error while checking for new serialization policies", throwable);
+            } else if (snapshot.get().version != version) {
+                log.info("Serialization policies changed, now at version={}", snapshot.get().version);
+            }
+        });
     }
 
 
     /**
-     * Map from ServiceInterface class name to Serialization Policy name.
+     * Loads the policies saved in the store the first time it is called, and returns whether it did.
      */
-    private CompletionStage<Void> fetchSerializationPoliciesAsync(Executor executor) {
-        Map<String, String> newPolicyNameByService = new HashMap<>();
-        Map<String, SerializationPolicy> newPolicyByName = new HashMap<>();
+    private synchronized boolean loadPolicyStore() {
+        if (policyStoreLoaded) {
+            return false;
+        }
+        policyStoreLoaded = true;
+
+        SerializationPolicyStore.StoredPolicies storedPolicies;
+        try {
+            storedPolicies = policyStore.load();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Error while loading stored serialization policies", e);
+            return false;
+        }
+
+        Map<String, SerializationPolicy> loadedPolicyByName = new HashMap<>();
+        for (String policyName : Set.copyOf(storedPolicies.getPolicyNameByService().values())) {
+            String policyContent = storedPolicies.getPolicyContentByName().get(policyName);
+            SerializationPolicy serializationPolicy = parsePolicy(policyName, classLoader, () -> loadStoredPolicy(policyName, policyContent));
+            if (serializationPolicy != null) {
+                loadedPolicyByName.put(policyName, serializationPolicy);
+            }
+        }
+        DiscoveredPolicies loaded = new DiscoveredPolicies();
+        storedPolicies.getPolicyNameByService().forEach((serviceName, policyName) -> {
+            if (loadedPolicyByName.containsKey(policyName)) {
+                loaded.policyNameByService.put(serviceName, policyName);
+            }
+        });
+        loadedPolicyByName.forEach((policyName, serializationPolicy) -> {
+            loaded.policyByName.put(policyName, serializationPolicy);
+            String policyContent = storedPolicies.getPolicyContentByName().get(policyName);
+            if (policyContent != null) {
+                loaded.policyContentByName.put(policyName, policyContent);
+            }
+        });
+        // What was discovered meanwhile is more recent than the store
+        snapshot.updateAndGet(current -> current.with(loaded, false));
+        log.info("Loaded {} stored serialization policies", loadedPolicyByName.size());
+        return true;
+    }
+
+    /**
+     * Loads the binary form of the given stored policy if the store has it, or parses its content otherwise.
+     */
+    private SerializationPolicy loadStoredPolicy(String policyName, String policyContent) {
+        try {
+            ByteBuffer binaryPolicy = policyStore.loadBinary(policyName);
+            if (binaryPolicy != null) {
+                return SerializationPolicyLoader.loadBinary(binaryPolicy, classLoader);
+            }
+        } catch (IOException | ParseException | RuntimeException e) {
+            log.warn("Error while loading binary serialization policy={}, parsing its content", policyName, e);
+        }
+        if (policyContent == null) {
+            try {
+                policyContent = policyStore.loadContent(policyName);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Error while loading the content of stored serialization policy={}", policyName, e);
+            }
+            if (policyContent == null) {
+                return null;
+            }
+        }
+        return parseNewPolicy(policyName, policyContent, classLoader);
+    }
+
+    /**
+     * Joins the fetch in progress or starts a new one, returning whether the discovery stopped early.
+     *
+     * @param onlyIfModuleChanged whether a new fetch skips the discovery when the nocache.js is the same as
+     *                            the one the known policies were discovered from
+     */
+    private CompletionStage<Boolean> joinOrFetchSerializationPoliciesAsync(Executor executor, boolean onlyIfModuleChanged) {
+        CompletableFuture<Boolean> inFlight = inFlightFetch.get();
+        if (inFlight != null) {
+            log.debug("Joining the fetch of serialization policies already in progress");
+            return inFlight;
+        }
+        CompletableFuture<Boolean> newFetch = new CompletableFuture<>();
+        if (!inFlightFetch.compareAndSet(null, newFetch)) {
+            return joinOrFetchSerializationPoliciesAsync(executor, onlyIfModuleChanged);
+        }
+        CompletionStage<Boolean> fetch;
+        try {
+            fetch = fetchSerializationPoliciesAsync(executor, onlyIfModuleChanged);
+        } catch (RuntimeException e) {
+            fetch = CompletableFuture.failedStage(e);
+        }
+        fetch.whenComplete((stoppedEarly, throwable) -> {
+            // Clear before completing, so that whoever reacts to the outcome may start a new fetch
+            inFlightFetch.compareAndSet(newFetch, null);
+            if (throwable != null) {
+                newFetch.completeExceptionally(throwable);
+            } else {
+                newFetch.complete(stoppedEarly);
+            }
+        });
+        return newFetch;
+    }
 
+    private CompletionStage<Boolean> fetchSerializationPoliciesAsync(Executor executor, boolean onlyIfModuleChanged) {
         log.info("Fetching serialization policies...");
 
         HttpClient httpClient = HttpClient.newBuilder()
                 .executor(executor)
                 .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(requestTimeout)
                 .build();
 
         String[] urlparts = moduleBaseURL.split("/");
         String moduleNoCacheJs = urlparts[urlparts.length - 1] + ".nocache.js";
-        return getResposeTextAsync(moduleBaseURL + moduleNoCacheJs, httpClient, executor).thenComposeAsync(noCacheJsFileContent -> {
-            Matcher matcher = PERMUTATION_NAME_PATTERN.matcher(noCacheJsFileContent);
-            if (matcher.find()) {
-                boolean xsiFrameLinker = noCacheJsFileContent.contains(".cache.js");
-                if (xsiFrameLinker) {
-                    log.debug("Searching for policies generated by XSIFrame linker");
-                    String permutationFile = matcher.group().replace("'", "") + ".cache.js";
-                    return getResposeTextAsync(moduleBaseURL + permutationFile, httpClient, executor).thenApplyAsync(responseText -> {
-                        return POLICY_NAME_DOUBLE_QUOTES_PATTERN.matcher(responseText).results()
-                                .map(mr -> mr.group().replace("\"", ""))
-                                .collect(Collectors.toSet());
-                    }, executor);
-                } else {
-                    log.debug("Searching for policies generated by standard linker");
-                    String permutationFile = matcher.group().replace("'", "") + ".cache.html";
-                    return getResposeTextAsync(moduleBaseURL + permutationFile, httpClient, executor).thenApplyAsync(responseText -> {
-                        return POLICY_NAME_SINGLE_QUOTES_PATTERN.matcher(responseText).results()
-                                .skip(1 /* the permutation name */)
-                                .map(mr -> mr.group().replace("'", ""))
-                                .collect(Collectors.toSet());
-                    }, executor);
-                }
-            } else {
-                return CompletableFuture.completedFuture(Set.<String>of());
+        // A service not resolved yet may be in a policy skipped by an early terminated discovery
+        boolean allResolved = allRegisteredServicesResolved();
+        ResourceVersion knownNoCacheJsVersion = allResolved ? noCacheJsVersion : null;
+        String knownNoCacheJsContent = allResolved && onlyIfModuleChanged ? noCacheJsContent : null;
+        return getResponseAsync(moduleBaseURL + moduleNoCacheJs, knownNoCacheJsVersion, httpClient, executor).thenComposeAsync(response -> {
+            // The nocache.js embeds the names of the permutations, which change on every new compilation
+            if (knownNoCacheJsVersion != null && response.statusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                log.info("Module not modified since serialization policies were fetched, keeping them");
+                return CompletableFuture.completedFuture(false);
             }
-        }, executor).thenComposeAsync(policyNames -> {
+            if (knownNoCacheJsContent != null && knownNoCacheJsContent.equals(response.body())) {
+                log.info("Module not compiled again since serialization policies were fetched, keeping them");
+                return CompletableFuture.completedFuture(false);
+            }
+            ResourceVersion newNoCacheJsVersion = ResourceVersion.of(response);
+            DiscoveredPolicies discovered = new DiscoveredPolicies();
+            return discoverSerializationPoliciesAsync(response.body(), discovered, httpClient, executor).thenApply(found -> {
+                if (found) {
+                    noCacheJsVersion = newNoCacheJsVersion;
+                    noCacheJsContent = response.body();
+                }
+                return discovered.stoppedEarly;
+            });
+        }, executor);
+    }
+
+    private boolean allRegisteredServicesResolved() {
+        return snapshot.get().policyNameByService.keySet().containsAll(registeredServices);
+    }
+
+    /**
+     * Fetches the policies referenced by the given nocache.js, and returns whether any service was found.
+     */
+    private CompletionStage<Boolean> discoverSerializationPoliciesAsync(String noCacheJsFileContent, DiscoveredPolicies discovered, HttpClient httpClient, Executor executor) {
+
+        return findPermutationPolicyNamesAsync(noCacheJsFileContent, httpClient, executor).thenComposeAsync(policyNames -> {
             if (policyNames == null || policyNames.isEmpty()) {
                 // Examine the compilation-mappings.txt file that is generated by GWT, in the event
                 // (such as in 2.7.0) that serialization policies are no longer in the nocache.js file
@@ -133,12 +486,10 @@ public class RpcPolicyFinder {
                     Matcher matcher = CACHE_JS_FILE_PATTERN.matcher(compilationMappings);
                     if (matcher.find()) {
                         String browserSpec = matcher.group();
-                        return getResposeTextAsync(moduleBaseURL + browserSpec, httpClient, executor).thenApplyAsync(cacheJs -> {
-                            return POLICY_NAME_SINGLE_QUOTES_PATTERN.matcher(cacheJs).results()
-                                    .skip(1 /* the permutation name */)
-                                    .map(mr -> mr.group().replace("'", ""))
-                                    .collect(Collectors.toSet());
-                        }, executor);
+                        return scanQuotedNamesAsync(moduleBaseURL + browserSpec, '\'', httpClient, executor).thenApply(names ->
+                                names.stream()
+                                        .skip(1 /* the permutation name */)
+                                        .collect(Collectors.toSet()));
                     } else {
                         return CompletableFuture.completedFuture(Set.<String>of());
                     }
@@ -147,62 +498,327 @@ public class RpcPolicyFinder {
                 return CompletableFuture.completedFuture(policyNames);
             }
         }, executor).thenComposeAsync(policyNames -> {
-            CompletableFuture<?>[] completableFutures = new CompletableFuture[policyNames.size()];
-            int i = 0;
+            // Known policies first, since they are the most likely to be used again
+            Deque<String> candidates = new ArrayDeque<>();
             for (String policyName : policyNames) {
-                String policyUrl = moduleBaseURL + policyName + GWT_PRC_POLICY_FILE_EXT;
-                completableFutures[i] = getResposeTextAsync(policyUrl, httpClient, executor).thenAcceptAsync(policyContent -> {
-                    SerializationPolicy serializationPolicy;
-                    List<ClassNotFoundException> notFoundExceptions = new ArrayList<>();
-                    try {
-                        serializationPolicy = SerializationPolicyLoader.load(new StringReader(policyContent), notFoundExceptions);
-                    } catch (IOException | ParseException e) {
-                        log.error("Error while loading serialization policy" + policyName, e);
-                        return;
-                    }
-                    if (!notFoundExceptions.isEmpty()) {
-                        log.error("Classes not found while loading serialization policy={} exceptions={}", policyName, notFoundExceptions);
-                    }
+                if (nonPolicyNames.contains(policyName)) {
+                    continue;
+                }
+                if (snapshot.get().policyByName.containsKey(policyName)) {
+                    candidates.addFirst(policyName);
+                } else {
+                    candidates.addLast(policyName);
+                }
+            }
+            log.debug("Loading {} candidate policies, skipping {} known non-policies", candidates.size(), policyNames.size() - candidates.size());
 
-                    AtomicInteger addedServices = new AtomicInteger();
-                    policyContent.lines().forEach(line -> {
-                        int pos = line.indexOf(", false, false, false, false, _, ");
-                        if (pos > 0) {
-                            String serviceName = line.substring(0, pos);
-                            newPolicyNameByService.put(serviceName, policyName);
-                            newPolicyNameByService.put(serviceName + "Async", policyName);
-                            addedServices.incrementAndGet();
-                            log.debug("Created mapping of serviceName={}/Async to policy={}", serviceName, policyName);
-                        }
-                    });
-                    if (addedServices.get() > 0) {
-                        newPolicyByName.put(policyName, serializationPolicy);
-                        log.debug("Added policy from url={} with {} service(s)", policyUrl, addedServices.get());
-                    }
-                }, executor);
-                i++;
+            CompletableFuture<?>[] workers = new CompletableFuture[Math.min(maxConcurrentDownloads, candidates.size())];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = loadCandidatePoliciesAsync(candidates, discovered, httpClient, executor);
             }
-            return CompletableFuture.allOf(completableFutures);
-        }, executor).thenAcceptAsync(ignored -> {
+            return CompletableFuture.allOf(workers).thenRun(() -> {
+                if (!candidates.isEmpty()) {
+                    discovered.stoppedEarly = true;
+                    log.debug("All registered services resolved, skipping {} candidate policies", candidates.size());
+                }
+            });
+        }, executor).thenApplyAsync(ignored -> {
+            Map<String, String> newPolicyNameByService = discovered.policyNameByService;
+            Map<String, SerializationPolicy> newPolicyByName = discovered.policyByName;
             if (newPolicyNameByService.isEmpty()) {
                 log.info("No RemoteService fetched from server");
             } else {
                 log.info("Found {} RemoteService(s) from {} policies: {}",
                         newPolicyNameByService.size(), newPolicyByName.size(), String.join(", ", newPolicyNameByService.keySet()));
             }
-            policyNameByService.putAll(newPolicyNameByService);
-            policyByName.putAll(newPolicyByName);
+            PolicySnapshot updated = snapshot.updateAndGet(current -> current.with(discovered, true));
+
+            if (policyStore != null && !newPolicyNameByService.isEmpty()) {
+                // All the known services, since a discovery which stopped early did not load every policy,
+                // but only the policies still used by them
+                Map<String, String> storedPolicyContentByName = new HashMap<>();
+                for (String policyName : Set.copyOf(updated.policyNameByService.values())) {
+                    String policyContent = getPolicyContent(updated, policyName);
+                    if (policyContent != null) {
+                        storedPolicyContentByName.put(policyName, policyContent);
+                    }
+                }
+                try {
+                    policyStore.save(new SerializationPolicyStore.StoredPolicies(updated.policyNameByService, storedPolicyContentByName));
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Error while storing serialization policies", e);
+                }
+            }
+            return !newPolicyNameByService.isEmpty();
         }, executor);
     }
 
+    /**
+     * Loads the given candidate policies one after the other, until none is left or every registered service
+     * has been resolved. Several of these run at once to bound the number of concurrent downloads.
+     */
+    private CompletableFuture<Void> loadCandidatePoliciesAsync(Deque<String> candidates, DiscoveredPolicies discovered, HttpClient httpClient, Executor executor) {
+        String policyName;
+        synchronized (candidates) {
+            if (!registeredServices.isEmpty() && discovered.policyNameByService.keySet().containsAll(registeredServices)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            policyName = candidates.pollFirst();
+        }
+        if (policyName == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return loadPolicyAsync(policyName, discovered, httpClient, executor)
+                .thenComposeAsync(ignored -> loadCandidatePoliciesAsync(candidates, discovered, httpClient, executor), executor);
+    }
+
+    private CompletableFuture<Void> loadPolicyAsync(String policyName, DiscoveredPolicies discovered, HttpClient httpClient, Executor executor) {
+        PolicySnapshot known = snapshot.get();
+        SerializationPolicy knownPolicy = known.policyByName.get(policyName);
+        String knownPolicyContent = knownPolicy != null ? getPolicyContent(known, policyName) : null;
+        if (knownPolicyContent != null && knownPolicy != null) {
+            // Policy files are named after a hash of their content: a known one never changes
+            log.debug("Reusing already loaded policy={}", policyName);
+            discovered.add(policyName, knownPolicyContent, knownPolicy, findServiceNames(knownPolicyContent));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String policyUrl = moduleBaseURL + policyName + GWT_PRC_POLICY_FILE_EXT;
+        return getResponseAsync(policyUrl, null, httpClient, executor).thenAcceptAsync(response -> {
+            if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+                // Possibly a temporary failure (even a 404, e.g. while a new compilation is being deployed):
+                // do not remember it
+                log.warn("Unexpected statusCode={} while getting policy from url={}", response.statusCode(), policyUrl);
+                return;
+            }
+            String policyContent = response.body();
+            List<String> serviceNames = findServiceNames(policyContent);
+            SerializationPolicy serializationPolicy = serviceNames.isEmpty() ? null : parsePolicy(policyName, policyContent, classLoader);
+            if (serializationPolicy == null) {
+                // Strong names are hashes of the content: this one will never become a policy
+                log.debug("Remembering url={} as not a policy", policyUrl);
+                nonPolicyNames.add(policyName);
+                return;
+            }
+            discovered.add(policyName, policyContent, serializationPolicy, serviceNames);
+            log.debug("Added policy from url={} with {} service(s)", policyUrl, serviceNames.size());
+        }, executor);
+    }
+
+    /**
+     * Returns the names of the remote service interfaces described by the given policy file.
+     */
+    static List<String> findServiceNames(String policyContent) {
+        List<String> serviceNames = new ArrayList<>();
+        policyContent.lines().forEach(line -> {
+            int pos = line.indexOf(", false, false, false, false, _, ");
+            if (pos > 0) {
+                serviceNames.add(line.substring(0, pos));
+            }
+        });
+        return serviceNames;
+    }
+
+    private CompletionStage<Set<String>> findPermutationPolicyNamesAsync(String noCacheJsFileContent, HttpClient httpClient, Executor executor) {
+        Matcher matcher = PERMUTATION_NAME_PATTERN.matcher(noCacheJsFileContent);
+        if (matcher.find()) {
+            boolean xsiFrameLinker = noCacheJsFileContent.contains(".cache.js");
+            if (xsiFrameLinker) {
+                log.debug("Searching for policies generated by XSIFrame linker");
+                String permutationFile = matcher.group().replace("'", "") + ".cache.js";
+                return scanQuotedNamesAsync(moduleBaseURL + permutationFile, '"', httpClient, executor)
+                        .thenApply(Set::copyOf);
+            } else {
+                log.debug("Searching for policies generated by standard linker");
+                String permutationFile = matcher.group().replace("'", "") + ".cache.html";
+                return scanQuotedNamesAsync(moduleBaseURL + permutationFile, '\'', httpClient, executor).thenApply(names ->
+                        names.stream()
+                                .skip(1 /* the permutation name */)
+                                .collect(Collectors.toSet()));
+            }
+        } else {
+            return CompletableFuture.completedFuture(Set.<String>of());
+        }
+    }
+
+
+    /**
+     * Parses the given policy file, or returns null (after logging why) if it is not valid.
+     * <p>
+     * A policy already parsed by any finder for the same class loader is returned as is, instead of parsing it again.
+     */
+    private static SerializationPolicy parsePolicy(String policyName, String policyContent, ClassLoader classLoader) {
+        return parsePolicy(policyName, classLoader, () -> parseNewPolicy(policyName, policyContent, classLoader));
+    }
+
+    private static SerializationPolicy parsePolicy(String policyName, ClassLoader classLoader, Supplier<SerializationPolicy> parser) {
+        ConcurrentMap<String, WeakReference<SerializationPolicy>> parsedPolicies = PARSED_POLICIES.computeIfAbsent(
+                classLoader, loader -> new ConcurrentHashMap<>());
+        WeakReference<SerializationPolicy> parsedPolicy = parsedPolicies.get(policyName);
+        SerializationPolicy serializationPolicy = parsedPolicy != null ? parsedPolicy.get() : null;
+        if (serializationPolicy != null) {
+            log.debug("Reusing policy={} parsed by another finder", policyName);
+            return serializationPolicy;
+        }
+
+        serializationPolicy = parser.get();
+        if (serializationPolicy != null) {
+            parsedPolicies.values().removeIf(reference -> reference.get() == null);
+            parsedPolicies.put(policyName, new WeakReference<>(serializationPolicy));
+        }
+        return serializationPolicy;
+    }
+
+    private static SerializationPolicy parseNewPolicy(String policyName, String policyContent, ClassLoader classLoader) {
+        try {
+            // Classes are loaded when first exchanged, and logged there if not found
+            return SerializationPolicyLoader.loadLazily(policyContent, classLoader);
+        } catch (ParseException e) {
+            log.error("Error while loading serialization policy" + policyName, e);
+            return null;
+        }
+    }
+
     private CompletableFuture<String> getResposeTextAsync(String url, HttpClient httpClient, Executor executor) {
+        return getResponseAsync(url, null, httpClient, executor).thenApply(HttpResponse::body);
+    }
+
+    /**
+     * Returns the quoted strong names found in the given resource, which can be large (e.g. a permutation file):
+     * the body is scanned while it is received, and never held in memory as a whole.
+     */
+    private CompletableFuture<List<String>> scanQuotedNamesAsync(String url, char quote, HttpClient httpClient, Executor executor) {
+        HttpRequest request = HttpRequest.newBuilder().GET().uri(URI.create(url)).timeout(requestTimeout).build();
+
+        log.debug("Scanning resource at url=%s".formatted(url));
+        return httpClient.sendAsync(request, QuotedNameScanner.bodyHandler(quote))
+                .thenApplyAsync(HttpResponse::body, executor);
+    }
+
+    /**
+     * Gets the given resource, unless it is still at the given version (if any): in that case, the server
+     * answers with a 304 Not Modified and no body.
+     */
+    private CompletableFuture<HttpResponse<String>> getResponseAsync(String url, ResourceVersion knownVersion, HttpClient httpClient, Executor executor) {
         URI uri = URI.create(url);
-        HttpRequest request = HttpRequest.newBuilder().GET().uri(uri).build();
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder().GET().uri(uri).timeout(requestTimeout);
+        if (knownVersion != null) {
+            if (knownVersion.etag != null) {
+                requestBuilder.header("If-None-Match", knownVersion.etag);
+            }
+            if (knownVersion.lastModified != null) {
+                requestBuilder.header("If-Modified-Since", knownVersion.lastModified);
+            }
+        }
 
         log.debug("Getting resource at url=%s".formatted(url));
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApplyAsync(response -> {
-            String responseText = response.body();
-            return responseText;
-        }, executor);
+        return httpClient.sendAsync(requestBuilder.build(), HttpResponse.BodyHandlers.ofString())
+                .thenApplyAsync(response -> response, executor);
+    }
+
+
+    /**
+     * The known policies: never modified, but replaced as a whole by a new version when policies are added.
+     */
+    private static final class PolicySnapshot {
+        static final PolicySnapshot EMPTY = new PolicySnapshot(0, Map.of(), Map.of(), Map.of());
+
+        final long version;
+        final Map<String, String> policyNameByService;
+        final Map<String, SerializationPolicy> policyByName;
+        final Map<String, String> policyContentByName;
+
+        private PolicySnapshot(long version, Map<String, String> policyNameByService,
+                               Map<String, SerializationPolicy> policyByName, Map<String, String> policyContentByName) {
+            this.version = version;
+            this.policyNameByService = policyNameByService;
+            this.policyByName = policyByName;
+            this.policyContentByName = policyContentByName;
+        }
+
+        /**
+         * Returns a new version with the given policies added, or this same snapshot if nothing changes.
+         * <p>
+         * If requested, the added policies replace the known mappings, and the policies no service refers to
+         * anymore are dropped: calls in progress keep the policy they started with anyway.
+         */
+        PolicySnapshot with(DiscoveredPolicies policies, boolean replace) {
+            Map<String, String> newPolicyNameByService = merge(policyNameByService, policies.policyNameByService, replace);
+            Map<String, SerializationPolicy> newPolicyByName = merge(policyByName, policies.policyByName, replace);
+            Map<String, String> newPolicyContentByName = merge(policyContentByName, policies.policyContentByName, replace);
+            if (replace) {
+                Set<String> referencedPolicyNames = Set.copyOf(newPolicyNameByService.values());
+                newPolicyByName = retain(newPolicyByName, referencedPolicyNames);
+                newPolicyContentByName = retain(newPolicyContentByName, referencedPolicyNames);
+            }
+            if (newPolicyNameByService.equals(policyNameByService) && newPolicyByName.equals(policyByName)) {
+                return this;
+            }
+            return new PolicySnapshot(version + 1, newPolicyNameByService, newPolicyByName, newPolicyContentByName);
+        }
+
+        private static <V> Map<String, V> merge(Map<String, V> known, Map<String, V> added, boolean replace) {
+            Map<String, V> merged = new HashMap<>(known);
+            if (replace) {
+                merged.putAll(added);
+            } else {
+                added.forEach(merged::putIfAbsent);
+            }
+            return Map.copyOf(merged);
+        }
+
+        private static <V> Map<String, V> retain(Map<String, V> map, Set<String> keys) {
+            if (keys.containsAll(map.keySet())) {
+                return map;
+            }
+            Map<String, V> retained = new HashMap<>(map);
+            retained.keySet().retainAll(keys);
+            return Map.copyOf(retained);
+        }
+    }
+
+    /**
+     * The policies found by a discovery, which replace the known ones once it completes.
+     */
+    private static final class DiscoveredPolicies {
+        final Map<String, String> policyNameByService = new ConcurrentHashMap<>();
+        final Map<String, SerializationPolicy> policyByName = new ConcurrentHashMap<>();
+        final Map<String, String> policyContentByName = new ConcurrentHashMap<>();
+        /**
+         * Whether some candidates were skipped, since every service registered at that time was resolved.
+         */
+        volatile boolean stoppedEarly;
+
+        void add(String policyName, String policyContent, SerializationPolicy policy, List<String> serviceNames) {
+            if (serviceNames.isEmpty()) {
+                return;
+            }
+            for (String serviceName : serviceNames) {
+                policyNameByService.put(serviceName, policyName);
+                policyNameByService.put(serviceName + "Async", policyName);
+                log.debug("Created mapping of serviceName={}/Async to policy={}", serviceName, policyName);
+            }
+            policyByName.put(policyName, policy);
+            policyContentByName.put(policyName, policyContent);
+        }
+    }
+
+    /**
+     * The validators of a resource, to check if it changed since it was fetched.
+     */
+    private static final class ResourceVersion {
+        final String etag;
+        final String lastModified;
+
+        private ResourceVersion(String etag, String lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        static ResourceVersion of(HttpResponse<?> response) {
+            String etag = response.headers().firstValue("ETag").orElse(null);
+            String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+            return etag != null || lastModified != null ? new ResourceVersion(etag, lastModified) : null;
+        }
     }
 }
@@ -0,0 +1,411 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+
+/**
+ * The raw UTF-8 bytes of a GWT RPC response, received straight from the {@link java.net.http.HttpClient}.
+ * <p>
+ * The structure of a response (brackets, separators, numbers and escape sequences) is pure ASCII, so
+ * it is exposed as a {@link CharSequence} of one char per byte: tokens can be scanned and parsed
+ * without any charset conversion, and only the ranges holding actual strings are decoded from UTF-8
+ * with {@link #toString(int, int)}.
+ * <p>
+ * Responses sent with a gzip or deflate Content-Encoding are decompressed while they are received.
+ */
+public final class RpcResponseBody implements CharSequence {
+    private static final int DEFAULT_CAPACITY = 8 * 1024;
+
+    /**
+     * Upper bound for presizing the buffer from the Content-Length header, so that a bogus header
+     * cannot make us allocate huge arrays upfront. Longer bodies just grow the buffer as needed.
+     */
+    private static final int MAX_INITIAL_CAPACITY = 16 * 1024 * 1024;
+
+    /**
+     * Compressed responses are presized assuming this compression ratio.
+     */
+    private static final int EXPECTED_COMPRESSION_RATIO = 4;
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+    private final long encodedLength;
+
+
+    RpcResponseBody(byte[] bytes, int offset, int length) {
+        this(bytes, offset, length, length);
+    }
+
+    private RpcResponseBody(byte[] bytes, int offset, int length, long encodedLength) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        this.encodedLength = encodedLength;
+    }
+
+    public static RpcResponseBody of(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return new RpcResponseBody(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Returns a handler collecting the response body into a single array, presized from the
+     * Content-Length header when available, so that each received buffer is copied exactly once.
+     * Compressed bodies are inflated straight into that array.
+     */
+    public static HttpResponse.BodyHandler<RpcResponseBody> bodyHandler() {
+        return responseInfo -> {
+            String contentEncoding = responseInfo.headers().firstValue("Content-Encoding")
+                    .map(value -> value.trim().toLowerCase(Locale.ROOT))
+                    .orElse("identity");
+            long contentLength = responseInfo.headers().firstValueAsLong("Content-Length").orElse(-1);
+            return switch (contentEncoding) {
+                case "identity", "" -> new Subscriber(initialCapacity(contentLength, 1), null, false);
+                case "gzip", "x-gzip" ->
+                        new Subscriber(initialCapacity(contentLength, EXPECTED_COMPRESSION_RATIO), new Inflater(true), true);
+                case "deflate" ->
+                        new Subscriber(initialCapacity(contentLength, EXPECTED_COMPRESSION_RATIO), new Inflater(), false);
+                default -> HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.discarding(), ignored -> {
+                    throw new UncheckedIOException(new IOException("Unsupported Content-Encoding: " + contentEncoding));
+                });
+            };
+        };
+    }
+
+    private static int initialCapacity(long contentLength, int ratio) {
+        return contentLength >= 0 ? (int) Math.min(contentLength * ratio, MAX_INITIAL_CAPACITY) : DEFAULT_CAPACITY;
+    }
+
+    /**
+     * Returns the number of bytes actually received, which is less than the {@link #length()}
+     * of the body if it was compressed.
+     */
+    public long getEncodedLength() {
+        return this.encodedLength;
+    }
+
+    public boolean startsWith(String prefix) {
+        if (prefix.length() > this.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int indexOf(char ch, int fromIndex) {
+        for (int i = Math.max(fromIndex, 0); i < this.length; i++) {
+            if (this.bytes[this.offset + i] == ch) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int indexOf(String str, int fromIndex) {
+        char first = str.charAt(0);
+        int max = this.length - str.length();
+        for (int i = Math.max(fromIndex, 0); i <= max; i++) {
+            if (charAt(i) == first && regionMatches(i, str)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int lastIndexOf(char ch, int fromIndex) {
+        for (int i = Math.min(fromIndex, this.length - 1); i >= 0; i--) {
+            if (this.bytes[this.offset + i] == ch) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean regionMatches(int start, String str) {
+        for (int j = 1; j < str.length(); j++) {
+            if (charAt(start + j) != str.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the given range from UTF-8.
+     */
+    public String toString(int start, int end) {
+        return new String(this.bytes, this.offset + start, end - start, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (this.bytes[this.offset + index] & 0xff);
+    }
+
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Returns a view of the given range, sharing the same bytes.
+     */
+    @Override
+    public RpcResponseBody subSequence(int start, int end) {
+        if (start < 0 || end > this.length || start > end) {
+            throw new IndexOutOfBoundsException("start=" + start + ", end=" + end + ", length=" + this.length);
+        }
+        return new RpcResponseBody(this.bytes, this.offset + start, end - start, this.encodedLength);
+    }
+
+    @Override
+    public String toString() {
+        return toString(0, this.length);
+    }
+
+
+    private static final class Subscriber implements BodySubscriber<RpcResponseBody> {
+        private static final int GZIP_MAGIC = 0x8b1f;
+        private static final int GZIP_FIXED_HEADER_LENGTH = 10;
+        private static final int GZIP_TRAILER_LENGTH = 8;
+        private static final int FHCRC = 2;
+        private static final int FEXTRA = 4;
+        private static final int FNAME = 8;
+        private static final int FCOMMENT = 16;
+
+        private final CompletableFuture<RpcResponseBody> result = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+        private byte[] buffer;
+        private int count;
+        private long encodedLength;
+
+        /**
+         * The inflater for compressed bodies, or null for uncompressed ones. Gzip bodies use
+         * a raw (nowrap) inflater, whose header and trailer are handled here.
+         */
+        private final Inflater inflater;
+        private final CRC32 crc;
+        private byte[] gzipHeader;
+        private int gzipHeaderCount;
+        private boolean gzipHeaderRead;
+        private final byte[] gzipTrailer = new byte[GZIP_TRAILER_LENGTH];
+        private int gzipTrailerCount;
+
+        Subscriber(int capacity, Inflater inflater, boolean gzip) {
+            this.buffer = new byte[Math.max(capacity, 1)];
+            this.inflater = inflater;
+            this.crc = gzip ? new CRC32() : null;
+            this.gzipHeader = gzip ? new byte[64] : null;
+            this.gzipHeaderRead = !gzip;
+        }
+
+        @Override
+        public CompletionStage<RpcResponseBody> getBody() {
+            return this.result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (this.result.isDone()) {
+                return;
+            }
+            try {
+                for (ByteBuffer item : items) {
+                    this.encodedLength += item.remaining();
+                    if (this.inflater == null) {
+                        copy(item);
+                    } else {
+                        inflate(item);
+                    }
+                }
+            } catch (IOException e) {
+                this.subscription.cancel();
+                end();
+                this.result.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            end();
+            this.result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (this.result.isDone()) {
+                return;
+            }
+            try {
+                if (this.inflater != null) {
+                    checkInflated();
+                }
+                this.result.complete(new RpcResponseBody(this.buffer, 0, this.count, this.encodedLength));
+            } catch (IOException e) {
+                this.result.completeExceptionally(e);
+            } finally {
+                end();
+            }
+        }
+
+        private void copy(ByteBuffer item) {
+            int remaining = item.remaining();
+            ensureCapacity(remaining);
+            item.get(this.buffer, this.count, remaining);
+            this.count += remaining;
+        }
+
+        private void inflate(ByteBuffer item) throws IOException {
+            if (!this.gzipHeaderRead) {
+                item = readGzipHeader(item);
+                if (item == null) {
+                    return;
+                }
+            }
+            if (!this.inflater.finished()) {
+                this.inflater.setInput(item);
+                try {
+                    while (true) {
+                        ensureCapacity(1);
+                        int n = this.inflater.inflate(this.buffer, this.count, this.buffer.length - this.count);
+                        if (this.crc != null) {
+                            this.crc.update(this.buffer, this.count, n);
+                        }
+                        this.count += n;
+                        if (this.inflater.finished() || this.inflater.needsInput()) {
+                            break;
+                        }
+                        if (n == 0 && this.inflater.needsDictionary()) {
+                            throw new ZipException("Compressed response requires a preset dictionary");
+                        }
+                    }
+                } catch (DataFormatException e) {
+                    throw new ZipException(e.getMessage());
+                }
+            }
+            if (this.inflater.finished() && this.crc != null) {
+                // What follows the compressed data is the gzip trailer
+                int n = Math.min(item.remaining(), GZIP_TRAILER_LENGTH - this.gzipTrailerCount);
+                item.get(this.gzipTrailer, this.gzipTrailerCount, n);
+                this.gzipTrailerCount += n;
+            }
+        }
+
+        /**
+         * Accumulates the variable-length gzip header, returning what follows it once it is complete.
+         */
+        private ByteBuffer readGzipHeader(ByteBuffer item) throws IOException {
+            int remaining = item.remaining();
+            if (this.gzipHeaderCount + remaining > this.gzipHeader.length) {
+                this.gzipHeader = Arrays.copyOf(this.gzipHeader, Math.max(2 * this.gzipHeader.length, this.gzipHeaderCount + remaining));
+            }
+            item.get(this.gzipHeader, this.gzipHeaderCount, remaining);
+            this.gzipHeaderCount += remaining;
+
+            int headerLength = gzipHeaderLength(this.gzipHeader, this.gzipHeaderCount);
+            if (headerLength < 0) {
+                return null;
+            }
+            this.gzipHeaderRead = true;
+            return ByteBuffer.wrap(this.gzipHeader, headerLength, this.gzipHeaderCount - headerLength);
+        }
+
+        /**
+         * Returns the length of the gzip header at the beginning of the given bytes, or -1 if it is not complete yet.
+         */
+        private static int gzipHeaderLength(byte[] header, int length) throws ZipException {
+            if (length < GZIP_FIXED_HEADER_LENGTH) {
+                return -1;
+            }
+            if (((header[0] & 0xff) | ((header[1] & 0xff) << 8)) != GZIP_MAGIC || header[2] != 8) {
+                throw new ZipException("Not in GZIP format");
+            }
+            int flags = header[3] & 0xff;
+            int pos = GZIP_FIXED_HEADER_LENGTH;
+            if ((flags & FEXTRA) != 0) {
+                if (length < pos + 2) {
+                    return -1;
+                }
+                pos += 2 + ((header[pos] & 0xff) | ((header[pos + 1] & 0xff) << 8));
+            }
+            if ((flags & FNAME) != 0) {
+                pos = skipZeroTerminated(header, pos, length);
+            }
+            if ((flags & FCOMMENT) != 0) {
+                pos = skipZeroTerminated(header, pos, length);
+            }
+            if ((flags & FHCRC) != 0) {
+                pos += 2;
+            }
+            return pos <= length ? pos : -1;
+        }
+
+        private static int skipZeroTerminated(byte[] header, int pos, int length) {
+            while (pos < length) {
+                if (header[pos++] == 0) {
+                    return pos;
+                }
+            }
+            // Not terminated yet: make the header look incomplete
+            return length + 1;
+        }
+
+        private void checkInflated() throws IOException {
+            if (!this.gzipHeaderRead || !this.inflater.finished()) {
+                throw new EOFException("Unexpected end of compressed response");
+            }
+            if (this.crc != null) {
+                if (this.gzipTrailerCount < GZIP_TRAILER_LENGTH) {
+                    throw new EOFException("Unexpected end of compressed response");
+                }
+                if (readInt(this.gzipTrailer, 0) != (int) this.crc.getValue()
+                    || readInt(this.gzipTrailer, 4) != (int) this.inflater.getBytesWritten()) {
+                    throw new ZipException("Corrupt GZIP trailer");
+                }
+            }
+        }
+
+        private static int readInt(byte[] bytes, int pos) {
+            return (bytes[pos] & 0xff) | ((bytes[pos + 1] & 0xff) << 8) | ((bytes[pos + 2] & 0xff) << 16) | ((bytes[pos + 3] & 0xff) << 24);
+        }
+
+        private void end() {
+            if (this.inflater != null) {
+                this.inflater.end();
+            }
+        }
+
+        private void ensureCapacity(int extra) {
+            if (this.count + extra > this.buffer.length) {
+                this.buffer = Arrays.copyOf(this.buffer, Math.max(2 * this.buffer.length, this.count + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the policies of a GWT module at build time, so that they are bundled with the application and
+ * read by {@link ClasspathSerializationPolicyStore}, for example with the exec-maven-plugin:
+ * <pre>
+ * java com.github.antoniomacri.reactivegwt.proxy.SerializationPolicyBundler resourcesDir moduleName moduleDir
+ * </pre>
+ * where {@code moduleDir} is the directory of the compiled module (in the WAR, the one containing the
+ * {@code .nocache.js} and {@code .gwt.rpc} files), {@code moduleName} is its name (the last path segment of
+ * its base URL, which may be given as well) and {@code resourcesDir} is the root of the classpath resources,
+ * e.g. {@code target/classes}.
+ */
+public final class SerializationPolicyBundler {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: " + SerializationPolicyBundler.class.getName() + " resourcesDir moduleName moduleDir");
+            System.exit(1);
+        }
+
+        SerializationPolicyStore.StoredPolicies policies = bundle(Path.of(args[0]), args[1], Path.of(args[2]));
+        System.out.println("Bundled " + policies.getPolicyContentByName().size() + " policies for "
+                           + policies.getPolicyNameByService().size() + " services");
+    }
+
+    /**
+     * Writes the policies found in the given module directory, along with their binary form, in the resource
+     * directory read by {@link ClasspathSerializationPolicyStore#forModule(String)}, returning them.
+     *
+     * @param moduleName the name of the module, or any of its base URLs
+     */
+    public static SerializationPolicyStore.StoredPolicies bundle(Path resourcesDirectory, String moduleName, Path moduleDirectory) throws IOException {
+        List<Path> policyFiles = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(moduleDirectory, "*" + DirectorySerializationPolicyStore.POLICY_FILE_EXT)) {
+            files.forEach(policyFiles::add);
+        }
+        // The same service can be listed by the policies of several permutations: the choice must be repeatable
+        Collections.sort(policyFiles);
+
+        Map<String, String> policyNameByService = new HashMap<>();
+        Map<String, String> policyContentByName = new HashMap<>();
+        for (Path policyFile : policyFiles) {
+            String fileName = policyFile.getFileName().toString();
+            String policyName = fileName.substring(0, fileName.length() - DirectorySerializationPolicyStore.POLICY_FILE_EXT.length());
+            if (!DirectorySerializationPolicyStore.POLICY_NAME_PATTERN.matcher(policyName).matches()) {
+                continue;
+            }
+            String policyContent = Files.readString(policyFile, StandardCharsets.UTF_8);
+            List<String> serviceNames = RpcPolicyFinder.findServiceNames(policyContent);
+            for (String serviceName : serviceNames) {
+                if (policyNameByService.putIfAbsent(serviceName, policyName) == null) {
+                    policyContentByName.put(policyName, policyContent);
+                }
+            }
+        }
+
+        SerializationPolicyStore.StoredPolicies policies = new SerializationPolicyStore.StoredPolicies(policyNameByService, policyContentByName);
+        Path bundleDirectory = resourcesDirectory.resolve(ClasspathSerializationPolicyStore.RESOURCE_DIRECTORY)
+                .resolve(ClasspathSerializationPolicyStore.getModuleName(moduleName));
+        new DirectorySerializationPolicyStore(bundleDirectory).save(policies);
+        return policies;
+    }
+
+    private SerializationPolicyBundler() {
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+/**
+ * Converts {@code .gwt.rpc} policy files into their binary form (see {@link SerializationPolicyLoader#compile}),
+ * for example at build time:
+ * <pre>
+ * java com.github.antoniomacri.reactivegwt.proxy.SerializationPolicyCompiler outputDir policy.gwt.rpc...
+ * </pre>
+ * Every binary policy is written in the output directory, named after its policy file.
+ */
+public final class SerializationPolicyCompiler {
+    private static final String POLICY_FILE_EXT = ".gwt.rpc";
+
+
+    public static void main(String[] args) throws IOException, ParseException {
+        if (args.length < 2) {
+            System.err.println("Usage: " + SerializationPolicyCompiler.class.getName() + " outputDir policy.gwt.rpc...");
+            System.exit(1);
+        }
+
+        Path outputDirectory = Path.of(args[0]);
+        Files.createDirectories(outputDirectory);
+        for (int i = 1; i < args.length; i++) {
+            Path policyFile = Path.of(args[i]);
+            Path binaryFile = compile(policyFile, outputDirectory);
+            System.out.println(policyFile + " -> " + binaryFile);
+        }
+    }
+
+    /**
+     * Converts the given policy file, returning the written binary file.
+     */
+    public static Path compile(Path policyFile, Path outputDirectory) throws IOException, ParseException {
+        String fileName = policyFile.getFileName().toString();
+        if (!fileName.endsWith(POLICY_FILE_EXT)) {
+            throw new IllegalArgumentException("Not a policy file: " + policyFile);
+        }
+        String policyName = fileName.substring(0, fileName.length() - POLICY_FILE_EXT.length());
+
+        byte[] binaryPolicy = SerializationPolicyLoader.compile(Files.readString(policyFile, StandardCharsets.UTF_8));
+        Path binaryFile = outputDirectory.resolve(SerializationPolicyLoader.getBinarySerializationPolicyFileName(policyName));
+        Files.write(binaryFile, binaryPolicy);
+        return binaryFile;
+    }
+
+    private SerializationPolicyCompiler() {
+    }
+}
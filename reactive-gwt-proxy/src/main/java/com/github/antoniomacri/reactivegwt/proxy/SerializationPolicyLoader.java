@@ -21,9 +21,13 @@ import com.google.gwt.user.server.rpc.SerializationPolicy;
 import com.google.gwt.user.server.rpc.impl.StandardSerializationPolicy;
 import com.google.gwt.user.server.rpc.impl.TypeNameObfuscator;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 import java.util.*;
 
@@ -56,6 +60,17 @@ public final class SerializationPolicyLoader {
         return serializationPolicyStrongName + ".gwt.rpc";
     }
 
+    /**
+     * Returns the file name of the binary form of a serialization policy from its strong name.
+     *
+     * @param serializationPolicyStrongName the serialization policy strong name
+     * @return the binary serialization policy file name
+     * @see #compile(String)
+     */
+    public static String getBinarySerializationPolicyFileName(String serializationPolicyStrongName) {
+        return serializationPolicyStrongName + ".gwt.rpcb";
+    }
+
     /**
      * Loads a SerializationPolicy from an input stream and optionally record
      * any {@link ClassNotFoundException}s.
@@ -69,6 +84,10 @@ public final class SerializationPolicyLoader {
      * @throws ParseException if the input stream is not properly formatted
      */
     public static StandardSerializationPolicy load(Reader reader, List<ClassNotFoundException> classNotFoundExceptions) throws IOException, ParseException {
+        StringWriter content = new StringWriter();
+        reader.transferTo(content);
+        ParsedPolicy parsedPolicy = parse(content.toString());
+
         Map<Class<?>, Boolean> whitelistSer = new HashMap<>();
         Map<Class<?>, Boolean> whitelistDeser = new HashMap<>();
         Map<Class<?>, String> typeIds = new HashMap<>();
@@ -76,108 +95,252 @@ public final class SerializationPolicyLoader {
 
         ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
 
-        BufferedReader br = new BufferedReader(reader);
+        for (PolicyEntry entry : parsedPolicy.entries.values()) {
+            try {
+                Class<?> clazz = Class.forName(entry.binaryTypeName, false, contextClassLoader);
+                if (entry.fieldSer) {
+                    whitelistSer.put(clazz, entry.instantSer);
+                }
+                if (entry.fieldDeser) {
+                    whitelistDeser.put(clazz, entry.instantDeser);
+                }
+                typeIds.put(clazz, entry.typeId);
+            } catch (ClassNotFoundException ex) {
+                // Ignore the error, but add it to the list of errors if
+                // one was provided.
+                if (classNotFoundExceptions != null) {
+                    classNotFoundExceptions.add(ex);
+                }
+            }
+        }
+        for (Map.Entry<String, Set<String>> entry : parsedPolicy.clientFields.entrySet()) {
+            try {
+                Class<?> clazz = Class.forName(entry.getKey(), false, contextClassLoader);
+                clientFields.put(clazz, entry.getValue());
+            } catch (ClassNotFoundException ex) {
+                if (classNotFoundExceptions != null) {
+                    classNotFoundExceptions.add(ex);
+                }
+            }
+        }
+        /*
+         * HERE'S THE CHANGE FROM THE ORIGINAL Deser and Ser are swapped because
+         * we are the client side
+         */
+        return new StandardSerializationPolicy(whitelistDeser, whitelistSer, typeIds, clientFields);
+    }
 
-        String line = br.readLine();
+    /**
+     * Loads a SerializationPolicy without loading any class: the types listed in the policy are resolved
+     * through the context class loader only when they are first exchanged, so that a policy listing thousands
+     * of classes is cheap to load.
+     * <p>
+     * Unlike {@link #load(Reader, List)}, classes which cannot be found are only logged when first used.
+     *
+     * @param policyContent the content of the policy file
+     * @return a {@link SerializationPolicy} which also implements {@link TypeNameObfuscator}
+     * @throws ParseException if the content is not properly formatted
+     */
+    public static SerializationPolicy loadLazily(String policyContent) throws ParseException {
+        return loadLazily(policyContent, Thread.currentThread().getContextClassLoader());
+    }
+
+    /**
+     * Like {@link #loadLazily(String)}, but resolves the types listed in the policy through the given class loader.
+     */
+    public static SerializationPolicy loadLazily(String policyContent, ClassLoader classLoader) throws ParseException {
+        ParsedPolicy parsedPolicy = parse(policyContent);
+        return new LazySerializationPolicy(parsedPolicy.entries, parsedPolicy.clientFields, classLoader);
+    }
+
+    /**
+     * Converts a policy file into a compact binary form, which {@link #loadBinary(Path)} loads without parsing
+     * any text: type names, type ids and field names are written once, and the flags of every type are packed
+     * in a single byte.
+     *
+     * @param policyContent the content of the policy file
+     * @return the binary form of the policy
+     * @throws ParseException if the content is not properly formatted
+     */
+    public static byte[] compile(String policyContent) throws ParseException {
+        return BinarySerializationPolicy.write(parse(policyContent));
+    }
+
+    /**
+     * Loads a SerializationPolicy from its binary form, memory-mapping the given file. Like
+     * {@link #loadLazily(String)}, classes are loaded only when first exchanged.
+     *
+     * @param file a file written with the output of {@link #compile(String)}
+     * @return a {@link SerializationPolicy} which also implements {@link TypeNameObfuscator}
+     * @throws IOException    if an error occurs while reading the file
+     * @throws ParseException if the file is not a binary policy
+     */
+    public static SerializationPolicy loadBinary(Path file) throws IOException, ParseException {
+        return loadBinary(map(file));
+    }
+
+    /**
+     * Maps the given file read-only, so that it is paged in from the page cache instead of being copied.
+     */
+    static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after closing the channel
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Loads a SerializationPolicy from its binary form, reading the given buffer from its position.
+     *
+     * @param buffer the output of {@link #compile(String)}
+     * @return a {@link SerializationPolicy} which also implements {@link TypeNameObfuscator}
+     * @throws ParseException if the buffer does not contain a binary policy
+     */
+    public static SerializationPolicy loadBinary(ByteBuffer buffer) throws ParseException {
+        return loadBinary(buffer, Thread.currentThread().getContextClassLoader());
+    }
+
+    /**
+     * Like {@link #loadBinary(ByteBuffer)}, but resolves the types listed in the policy through the given class loader.
+     */
+    public static SerializationPolicy loadBinary(ByteBuffer buffer, ClassLoader classLoader) throws ParseException {
+        ParsedPolicy parsedPolicy = BinarySerializationPolicy.read(buffer);
+        return new LazySerializationPolicy(parsedPolicy.entries, parsedPolicy.clientFields, classLoader);
+    }
+
+    /**
+     * Parses the policy in a single pass over its content, without splitting lines with regular expressions.
+     */
+    static ParsedPolicy parse(String content) throws ParseException {
+        Map<String, PolicyEntry> entries = new LinkedHashMap<>();
+        Map<String, Set<String>> clientFields = new HashMap<>();
+        List<String> components = new ArrayList<>(7);
+
+        int length = content.length();
+        int lineStart = 0;
         int lineNum = 1;
-        while (line != null) {
-            line = line.trim();
-            if (!line.isEmpty()) {
-                String[] components = line.split(",");
-
-                if (components[0].equals(CLIENT_FIELDS_KEYWORD)) {
-                    /*
-                     * Lines starting with '@ClientFields' list potentially
-                     * serializable fields known to client code for classes that
-                     * may be enhanced with additional fields on the server. If
-                     * additional server fields are found, they will be
-                     * serizalized separately from the normal RPC process and
-                     * transmitted to the client as an opaque blob of data
-                     * stored in a WeakMapping associated with the object
-                     * instance.
-                     */
-                    String binaryTypeName = components[1].trim();
-                    Class<?> clazz;
-                    try {
-                        clazz = Class.forName(binaryTypeName, false, contextClassLoader);
-                        HashSet<String> fieldNames = new HashSet<>(Arrays.asList(components).subList(2, components.length));
-                        clientFields.put(clazz, fieldNames);
-                    } catch (ClassNotFoundException ex) {
-                        // Ignore the error, but add it to the list of errors if
-                        // one was provided.
-                        if (classNotFoundExceptions != null) {
-                            classNotFoundExceptions.add(ex);
-                        }
-                    }
-                } else {
-                    if (components.length != 2 && components.length != 7) {
-                        throw new ParseException(FORMAT_ERROR_MESSAGE, lineNum);
-                    }
+        while (lineStart < length) {
+            int lineEnd = content.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = length;
+            }
+            splitLine(content, lineStart, lineEnd, components);
 
-                    for (int i = 0; i < components.length; i++) {
-                        components[i] = components[i].trim();
-                        if (components[i].isEmpty()) {
-                            throw new ParseException(FORMAT_ERROR_MESSAGE, lineNum);
-                        }
+            if (components.isEmpty()) {
+                // Blank line
+            } else if (components.get(0).equals(CLIENT_FIELDS_KEYWORD)) {
+                /*
+                 * Lines starting with '@ClientFields' list potentially
+                 * serializable fields known to client code for classes that
+                 * may be enhanced with additional fields on the server. If
+                 * additional server fields are found, they will be
+                 * serizalized separately from the normal RPC process and
+                 * transmitted to the client as an opaque blob of data
+                 * stored in a WeakMapping associated with the object
+                 * instance.
+                 */
+                if (components.size() < 2) {
+                    throw new ParseException("Expected: " + CLIENT_FIELDS_KEYWORD + ", className, fieldNames...", lineNum);
+                }
+                clientFields.put(components.get(1), new HashSet<>(components.subList(2, components.size())));
+            } else {
+                if (components.size() != 2 && components.size() != 7) {
+                    throw new ParseException(FORMAT_ERROR_MESSAGE, lineNum);
+                }
+                for (String component : components) {
+                    if (component.isEmpty()) {
+                        throw new ParseException(FORMAT_ERROR_MESSAGE, lineNum);
                     }
+                }
 
-                    String binaryTypeName = components[0].trim();
-                    boolean fieldSer;
-                    boolean instantSer;
-                    boolean fieldDeser;
-                    boolean instantDeser;
-                    String typeId;
-
-                    if (components.length == 2) {
-                        fieldSer = fieldDeser = true;
-                        instantSer = instantDeser = Boolean.parseBoolean(components[1]);
-                        typeId = binaryTypeName;
-                    } else {
-                        int idx = 1;
-                        // TODO: Validate the instantiable string better.
-                        fieldSer = Boolean.parseBoolean(components[idx++]);
-                        instantSer = Boolean.parseBoolean(components[idx++]);
-                        fieldDeser = Boolean.parseBoolean(components[idx++]);
-                        instantDeser = Boolean.parseBoolean(components[idx++]);
-                        typeId = components[idx++];
-
-                        if (!fieldSer && !fieldDeser && !TypeNameObfuscator.SERVICE_INTERFACE_ID.equals(typeId)) {
-                            throw new ParseException(
-                                    "Type "
-                                    + binaryTypeName
-                                    + " is neither field serializable, field deserializable "
-                                    + "nor the service interface",
-                                    lineNum);
-                        }
-                    }
+                String binaryTypeName = components.get(0);
+                PolicyEntry entry;
+                if (components.size() == 2) {
+                    boolean instantiable = Boolean.parseBoolean(components.get(1));
+                    entry = new PolicyEntry(binaryTypeName, true, instantiable, true, instantiable, binaryTypeName);
+                } else {
+                    // TODO: Validate the instantiable string better.
+                    entry = new PolicyEntry(binaryTypeName,
+                            Boolean.parseBoolean(components.get(1)),
+                            Boolean.parseBoolean(components.get(2)),
+                            Boolean.parseBoolean(components.get(3)),
+                            Boolean.parseBoolean(components.get(4)),
+                            components.get(5));
 
-                    try {
-                        Class<?> clazz = Class.forName(binaryTypeName, false, contextClassLoader);
-                        if (fieldSer) {
-                            whitelistSer.put(clazz, instantSer);
-                        }
-                        if (fieldDeser) {
-                            whitelistDeser.put(clazz, instantDeser);
-                        }
-                        typeIds.put(clazz, typeId);
-                    } catch (ClassNotFoundException ex) {
-                        // Ignore the error, but add it to the list of errors if
-                        // one was provided.
-                        if (classNotFoundExceptions != null) {
-                            classNotFoundExceptions.add(ex);
-                        }
+                    if (!entry.fieldSer && !entry.fieldDeser && !TypeNameObfuscator.SERVICE_INTERFACE_ID.equals(entry.typeId)) {
+                        throw new ParseException(
+                                "Type "
+                                + binaryTypeName
+                                + " is neither field serializable, field deserializable "
+                                + "nor the service interface",
+                                lineNum);
                     }
                 }
+                entries.put(binaryTypeName, entry);
             }
 
-            line = br.readLine();
+            lineStart = lineEnd + 1;
             lineNum++;
         }
-        /*
-         * HERE'S THE CHANGE FROM THE ORIGINAL Deser and Ser are swapped because
-         * we are the client side
-         */
-        return new StandardSerializationPolicy(whitelistDeser, whitelistSer, typeIds, clientFields);
+        return new ParsedPolicy(entries, clientFields);
+    }
+
+    /**
+     * Splits the given line at commas, trimming every component. Like {@link String#split(String)}, trailing
+     * empty components are dropped, so a blank line has no components.
+     */
+    private static void splitLine(String content, int lineStart, int lineEnd, List<String> components) {
+        components.clear();
+        int componentStart = lineStart;
+        for (int i = lineStart; i <= lineEnd; i++) {
+            if (i == lineEnd || content.charAt(i) == ',') {
+                int start = componentStart;
+                int end = i;
+                while (start < end && content.charAt(start) <= ' ') {
+                    start++;
+                }
+                while (end > start && content.charAt(end - 1) <= ' ') {
+                    end--;
+                }
+                components.add(content.substring(start, end));
+                componentStart = i + 1;
+            }
+        }
+        while (!components.isEmpty() && components.get(components.size() - 1).isEmpty()) {
+            components.remove(components.size() - 1);
+        }
+    }
+
+
+    /**
+     * A type listed in a policy, as written by the server: the serialization flags are not swapped yet.
+     */
+    static final class PolicyEntry {
+        final String binaryTypeName;
+        final boolean fieldSer;
+        final boolean instantSer;
+        final boolean fieldDeser;
+        final boolean instantDeser;
+        final String typeId;
+
+        PolicyEntry(String binaryTypeName, boolean fieldSer, boolean instantSer, boolean fieldDeser, boolean instantDeser, String typeId) {
+            this.binaryTypeName = binaryTypeName;
+            this.fieldSer = fieldSer;
+            this.instantSer = instantSer;
+            this.fieldDeser = fieldDeser;
+            this.instantDeser = instantDeser;
+            this.typeId = typeId;
+        }
+    }
+
+    static final class ParsedPolicy {
+        final Map<String, PolicyEntry> entries;
+        final Map<String, Set<String>> clientFields;
+
+        ParsedPolicy(Map<String, PolicyEntry> entries, Map<String, Set<String>> clientFields) {
+            this.entries = entries;
+            this.clientFields = clientFields;
+        }
     }
 
     private SerializationPolicyLoader() {
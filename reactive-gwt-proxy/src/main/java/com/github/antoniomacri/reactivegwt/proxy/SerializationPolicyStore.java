@@ -0,0 +1,77 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Persists the serialization policies discovered by a {@link RpcPolicyFinder}, so that a new JVM can
+ * call the services before discovering them again.
+ *
+ * @see DirectorySerializationPolicyStore
+ * @see ClasspathSerializationPolicyStore
+ */
+public interface SerializationPolicyStore {
+
+    /**
+     * Returns the policies saved by the last {@link #save}, or empty policies if nothing was saved.
+     * <p>
+     * The content of a policy having a binary form (see {@link #loadBinary}) may be left out, so that no text
+     * is read when the binary form loads: it is then read by {@link #loadContent} only if needed.
+     */
+    StoredPolicies load() throws IOException;
+
+    void save(StoredPolicies policies) throws IOException;
+
+    /**
+     * Returns the binary form of the given saved policy (see {@link SerializationPolicyLoader#compile}), which
+     * is loaded without parsing any text, or null if the store does not have it: the content of the policy is
+     * then parsed instead.
+     */
+    default ByteBuffer loadBinary(String policyName) throws IOException {
+        return null;
+    }
+
+    /**
+     * Returns the content of the given saved policy, or null if the store does not have it.
+     */
+    default String loadContent(String policyName) throws IOException {
+        return null;
+    }
+
+    /**
+     * Returns whether the loaded policies may be outdated, so that the policies of the module are fetched
+     * again in background after loading them. Otherwise, they are fetched only when the server reports an
+     * unknown policy.
+     */
+    default boolean needsRevalidation() {
+        return true;
+    }
+
+
+    /**
+     * The mapping from service interface names to policy names, and the content of each policy file (possibly
+     * only of some policies, when loaded).
+     */
+    final class StoredPolicies {
+        private final Map<String, String> policyNameByService;
+        private final Map<String, String> policyContentByName;
+
+        public StoredPolicies(Map<String, String> policyNameByService, Map<String, String> policyContentByName) {
+            this.policyNameByService = Map.copyOf(policyNameByService);
+            this.policyContentByName = Map.copyOf(policyContentByName);
+        }
+
+        public Map<String, String> getPolicyNameByService() {
+            return policyNameByService;
+        }
+
+        public Map<String, String> getPolicyContentByName() {
+            return policyContentByName;
+        }
+
+        public boolean isEmpty() {
+            return policyNameByService.isEmpty();
+        }
+    }
+}
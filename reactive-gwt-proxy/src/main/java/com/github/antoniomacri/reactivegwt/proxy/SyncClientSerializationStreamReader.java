@@ -24,8 +24,12 @@ import com.google.gwt.user.server.rpc.impl.SerializedInstanceReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -37,39 +41,6 @@ import java.util.*;
 public class SyncClientSerializationStreamReader extends AbstractSerializationStreamReader {
     private static final Logger log = LoggerFactory.getLogger(SyncClientSerializationStreamReader.class);
 
-    /**
-     * Used to accumulate elements while deserializing array types. The generic
-     * type of the BoundedList will vary from the component type of the array it
-     * is intended to create when the array is of a primitive type.
-     *
-     * @param <T> The type of object used to hold the data in the buffer
-     */
-    private static class BoundedList<T> extends LinkedList<T> {
-
-        private static final long serialVersionUID = 1374814408067623454L;
-        private final Class<?> componentType;
-        private final int expectedSize;
-
-        public BoundedList(Class<?> componentType, int expectedSize) {
-            this.componentType = componentType;
-            this.expectedSize = expectedSize;
-        }
-
-        @Override
-        public boolean add(T o) {
-            assert size() < getExpectedSize();
-            return super.add(o);
-        }
-
-        public Class<?> getComponentType() {
-            return this.componentType;
-        }
-
-        public int getExpectedSize() {
-            return this.expectedSize;
-        }
-    }
-
     /**
      * Enumeration used to provided typed instance readers.
      */
@@ -140,159 +111,337 @@ public class SyncClientSerializationStreamReader extends AbstractSerializationSt
     }
 
     /**
-     * Enumeration used to provided typed instance readers for vectors.
+     * Enumeration used to provided typed instance readers for vectors. Each of them fills
+     * an array of the right type in place, so that primitive elements are never boxed.
      */
     private enum VectorReader {
         BOOLEAN_VECTOR {
             @Override
-            protected Object readSingleValue(SyncClientSerializationStreamReader stream) {
-                return stream.readBoolean();
-            }
-
-            @Override
-            protected void setSingleValue(Object array, int index, Object value) {
-                Array.setBoolean(array, index, (Boolean) value);
+            void read(SyncClientSerializationStreamReader stream, Object instance) {
+                boolean[] array = (boolean[]) instance;
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = stream.readBoolean();
+                }
             }
         },
         BYTE_VECTOR {
             @Override
-            protected Object readSingleValue(SyncClientSerializationStreamReader stream) {
-                return stream.readByte();
-            }
-
-            @Override
-            protected void setSingleValue(Object array, int index, Object value) {
-                Array.setByte(array, index, (Byte) value);
+            void read(SyncClientSerializationStreamReader stream, Object instance) {
+                byte[] array = (byte[]) instance;
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = stream.readByte();
+                }
             }
         },
         CHAR_VECTOR {
             @Override
-            protected Object readSingleValue(SyncClientSerializationStreamReader stream) {
-                return stream.readChar();
-            }
-
-            @Override
-            protected void setSingleValue(Object array, int index, Object value) {
-                Array.setChar(array, index, (Character) value);
+            void read(SyncClientSerializationStreamReader stream, Object instance) {
+                char[] array = (char[]) instance;
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = stream.readChar();
+                }
             }
         },
         DOUBLE_VECTOR {
             @Override
-            protected Object readSingleValue(SyncClientSerializationStreamReader stream) {
-                return stream.readDouble();
-            }
-
-            @Override
-            protected void setSingleValue(Object array, int index, Object value) {
-                Array.setDouble(array, index, (Double) value);
+            void read(SyncClientSerializationStreamReader stream, Object instance) {
+                double[] array = (double[]) instance;
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = stream.readDouble();
+                }
             }
         },
         FLOAT_VECTOR {
             @Override
-            protected Object readSingleValue(SyncClientSerializationStreamReader stream) {
-                return stream.readFloat();
-            }
-
-            @Override
-            protected void setSingleValue(Object array, int index, Object value) {
-                Array.setFloat(array, index, (Float) value);
+            void read(SyncClientSerializationStreamReader stream, Object instance) {
+                float[] array = (float[]) instance;
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = stream.readFloat();
+                }
             }
         },
         INT_VECTOR {
             @Override
-            protected Object readSingleValue(SyncClientSerializationStreamReader stream) {
-                return stream.readInt();
-            }
-
-            @Override
-            protected void setSingleValue(Object array, int index, Object value) {
-                Array.setInt(array, index, (Integer) value);
+            void read(SyncClientSerializationStreamReader stream, Object instance) {
+                int[] array = (int[]) instance;
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = stream.readInt();
+                }
             }
         },
         LONG_VECTOR {
             @Override
-            protected Object readSingleValue(SyncClientSerializationStreamReader stream) {
-                return stream.readLong();
-            }
-
-            @Override
-            protected void setSingleValue(Object array, int index, Object value) {
-                Array.setLong(array, index, (Long) value);
+            void read(SyncClientSerializationStreamReader stream, Object instance) {
+                long[] array = (long[]) instance;
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = stream.readLong();
+                }
             }
         },
         OBJECT_VECTOR {
             @Override
-            protected Object readSingleValue(SyncClientSerializationStreamReader stream)
-                    throws SerializationException {
-                return stream.readObject();
-            }
-
-            @Override
-            protected void setSingleValue(Object array, int index, Object value) {
-                Array.set(array, index, value);
+            void read(SyncClientSerializationStreamReader stream, Object instance) throws SerializationException {
+                Object[] array = (Object[]) instance;
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = stream.readObject();
+                }
             }
         },
         SHORT_VECTOR {
             @Override
-            protected Object readSingleValue(SyncClientSerializationStreamReader stream) {
-                return stream.readShort();
-            }
-
-            @Override
-            protected void setSingleValue(Object array, int index, Object value) {
-                Array.setShort(array, index, (Short) value);
+            void read(SyncClientSerializationStreamReader stream, Object instance) {
+                short[] array = (short[]) instance;
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = stream.readShort();
+                }
             }
         },
         STRING_VECTOR {
             @Override
-            protected Object readSingleValue(SyncClientSerializationStreamReader stream) {
-                return stream.readString();
+            void read(SyncClientSerializationStreamReader stream, Object instance) {
+                String[] array = (String[]) instance;
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = stream.readString();
+                }
             }
+        };
 
-            @Override
-            protected void setSingleValue(Object array, int index, Object value) {
-                Array.set(array, index, value);
+        abstract void read(SyncClientSerializationStreamReader stream, Object instance) throws SerializationException;
+    }
+
+    /**
+     * Reads the value of a single serialized field and stores it into an instance.
+     */
+    @FunctionalInterface
+    private interface FieldDeserializer {
+        void deserialize(SyncClientSerializationStreamReader stream, Object instance) throws Throwable;
+    }
+
+    private enum Kind {
+        CUSTOM, ARRAY, ENUM, EXCEPTION, CLASS
+    }
+
+    /**
+     * How the serialized state of a class (excluding what is read on instantiation) is decoded
+     * into an instance. Superclasses whose fields are serialized are chained.
+     */
+    private static final class ClassPlan {
+        private static final MethodType CUSTOM_DESERIALIZER_TYPE =
+                MethodType.methodType(void.class, SyncClientSerializationStreamReader.class, Object.class);
+
+        final Class<?> instanceClass;
+        final Kind kind;
+        final MethodHandle customDeserializer;
+        final VectorReader vectorReader;
+        final boolean enhanced;
+        final FieldDeserializer[] fieldDeserializers;
+        final ClassPlan superClassPlan;
+
+        private ClassPlan(Class<?> instanceClass, Kind kind, MethodHandle customDeserializer, VectorReader vectorReader,
+                          boolean enhanced, FieldDeserializer[] fieldDeserializers, ClassPlan superClassPlan) {
+            this.instanceClass = instanceClass;
+            this.kind = kind;
+            this.customDeserializer = customDeserializer;
+            this.vectorReader = vectorReader;
+            this.enhanced = enhanced;
+            this.fieldDeserializers = fieldDeserializers;
+            this.superClassPlan = superClassPlan;
+        }
+
+        static ClassPlan compile(Class<?> instanceClass, SerializationPolicy serializationPolicy)
+                throws NoSuchMethodException, IllegalAccessException {
+            Class<?> customSerializer = SerializabilityUtil.hasCustomFieldSerializer(instanceClass);
+            if (customSerializer != null) {
+                assert !instanceClass.isArray();
+                MethodHandle deserializer = findCustomSerializerMethod(customSerializer, "deserialize");
+                if (deserializer == null) {
+                    throw new NoSuchMethodException("deserialize");
+                }
+                return new ClassPlan(instanceClass, Kind.CUSTOM, deserializer.asType(CUSTOM_DESERIALIZER_TYPE),
+                        null, false, null, null);
+            } else if (instanceClass.isArray()) {
+                VectorReader vectorReader = CLASS_TO_VECTOR_READER.get(instanceClass);
+                return new ClassPlan(instanceClass, Kind.ARRAY, null,
+                        Objects.requireNonNullElse(vectorReader, VectorReader.OBJECT_VECTOR), false, null, null);
+            } else if (instanceClass.isEnum()) {
+                return new ClassPlan(instanceClass, Kind.ENUM, null, null, false, null, null);
+            } else if (Exception.class.isAssignableFrom(instanceClass)) {
+                return new ClassPlan(instanceClass, Kind.EXCEPTION, null, null, false, null, null);
             }
-        };
 
-        Object read(SyncClientSerializationStreamReader stream,
-                    BoundedList<Object> instance) throws SerializationException {
-            for (int i = 0, n = instance.getExpectedSize(); i < n; ++i) {
-                instance.add(readSingleValue(stream));
+            boolean enhanced = serializationPolicy.getClientFieldNamesForEnhancedClass(instanceClass) != null;
+            Field[] serializableFields = SerializabilityUtil.applyFieldSerializationPolicy(instanceClass, serializationPolicy);
+            FieldDeserializer[] fieldDeserializers = new FieldDeserializer[serializableFields.length];
+            for (int i = 0; i < serializableFields.length; i++) {
+                fieldDeserializers[i] = createFieldDeserializer(serializableFields[i]);
             }
 
-            return toArray(instance.getComponentType(), instance);
+            Class<?> superClass = instanceClass.getSuperclass();
+            ClassPlan superClassPlan = serializationPolicy.shouldDeserializeFields(superClass)
+                    ? compile(superClass, serializationPolicy)
+                    : null;
+
+            return new ClassPlan(instanceClass, Kind.CLASS, null, null, enhanced, fieldDeserializers, superClassPlan);
         }
 
-        protected abstract Object readSingleValue(SyncClientSerializationStreamReader stream)
-                throws SerializationException;
+        private static FieldDeserializer createFieldDeserializer(Field field) throws IllegalAccessException {
+            assert field != null;
+
+            // Override access restrictions, if possible
+            field.trySetAccessible();
+            MethodHandle setter = MethodHandles.lookup().unreflectSetter(field);
+
+            // Lambdas below use block bodies, so that invokeExact is linked with a void return type
+            Class<?> type = field.getType();
+            if (type == boolean.class) {
+                MethodHandle mh = setter.asType(MethodType.methodType(void.class, Object.class, boolean.class));
+                return (stream, instance) -> {
+                    mh.invokeExact(instance, stream.readBoolean());
+                };
+            } else if (type == byte.class) {
+                MethodHandle mh = setter.asType(MethodType.methodType(void.class, Object.class, byte.class));
+                return (stream, instance) -> {
+                    mh.invokeExact(instance, stream.readByte());
+                };
+            } else if (type == char.class) {
+                MethodHandle mh = setter.asType(MethodType.methodType(void.class, Object.class, char.class));
+                return (stream, instance) -> {
+                    mh.invokeExact(instance, stream.readChar());
+                };
+            } else if (type == double.class) {
+                MethodHandle mh = setter.asType(MethodType.methodType(void.class, Object.class, double.class));
+                return (stream, instance) -> {
+                    mh.invokeExact(instance, stream.readDouble());
+                };
+            } else if (type == float.class) {
+                MethodHandle mh = setter.asType(MethodType.methodType(void.class, Object.class, float.class));
+                return (stream, instance) -> {
+                    mh.invokeExact(instance, stream.readFloat());
+                };
+            } else if (type == int.class) {
+                MethodHandle mh = setter.asType(MethodType.methodType(void.class, Object.class, int.class));
+                return (stream, instance) -> {
+                    mh.invokeExact(instance, stream.readInt());
+                };
+            } else if (type == long.class) {
+                MethodHandle mh = setter.asType(MethodType.methodType(void.class, Object.class, long.class));
+                return (stream, instance) -> {
+                    mh.invokeExact(instance, stream.readLong());
+                };
+            } else if (type == short.class) {
+                MethodHandle mh = setter.asType(MethodType.methodType(void.class, Object.class, short.class));
+                return (stream, instance) -> {
+                    mh.invokeExact(instance, stream.readShort());
+                };
+            }
 
-        protected abstract void setSingleValue(Object array, int index,
-                                               Object value);
+            MethodHandle mh = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+            if (type == String.class) {
+                return (stream, instance) -> {
+                    mh.invokeExact(instance, (Object) stream.readString());
+                };
+            } else {
+                // Arrays of primitive or reference types need to go through readObject.
+                return (stream, instance) -> {
+                    mh.invokeExact(instance, stream.readObject());
+                };
+            }
+        }
+    }
 
-        /**
-         * Convert a BoundedList to an array of the correct type. This
-         * implementation consumes the BoundedList.
-         */
-        protected Object toArray(Class<?> componentType,
-                                 BoundedList<Object> buffer) throws SerializationException {
-            if (buffer.getExpectedSize() != buffer.size()) {
-                throw new SerializationException(
-                        "Inconsistent number of elements received. Received "
-                        + buffer.size() + " but expecting "
-                        + buffer.getExpectedSize());
+    /**
+     * Everything needed to decode an instance of a given type signature under a given
+     * serialization policy, resolved once so that decoding does no reflective lookups.
+     */
+    private static final class DeserializationPlan {
+        final Class<?> instanceClass;
+        final Kind instantiationKind;
+        final MethodHandle customInstantiator;
+        final MethodHandle constructor;
+        final Enum<?>[] enumConstants;
+        final ClassPlan classPlan;
+
+        private DeserializationPlan(Class<?> instanceClass, Kind instantiationKind, MethodHandle customInstantiator,
+                                    MethodHandle constructor, Enum<?>[] enumConstants, ClassPlan classPlan) {
+            this.instanceClass = instanceClass;
+            this.instantiationKind = instantiationKind;
+            this.customInstantiator = customInstantiator;
+            this.constructor = constructor;
+            this.enumConstants = enumConstants;
+            this.classPlan = classPlan;
+        }
+
+        static DeserializationPlan compile(String typeSignature, SerializationPolicy serializationPolicy)
+                throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException {
+            SerializedInstanceReference serializedInstRef = SerializabilityUtil.decodeSerializedInstanceReference(typeSignature);
+            Class<?> instanceClass = ClassLoading.loadClass(serializedInstRef.getName());
+
+            assert serializationPolicy != null;
+
+            try {
+                serializationPolicy.validateDeserialize(instanceClass);
+            } catch (SerializationException e) {
+                log.warn("Failed validateDeserialize", e);
             }
 
-            Object arr = Array.newInstance(componentType, buffer.size());
+            // TODO validateTypeVersions(instanceClass, serializedInstRef);
+
+            ClassPlan classPlan = ClassPlan.compile(instanceClass, serializationPolicy);
+
+            MethodHandle customInstantiator = null;
+            Class<?> customSerializer = SerializabilityUtil.hasCustomFieldSerializer(instanceClass);
+            if (customSerializer != null) {
+                customInstantiator = findCustomSerializerMethod(customSerializer, "instantiate");
+                // Ok to not have one.
+                if (customInstantiator != null) {
+                    customInstantiator = customInstantiator.asType(
+                            MethodType.methodType(Object.class, SyncClientSerializationStreamReader.class));
+                }
+            }
 
-            for (int i = 0, n = buffer.size(); i < n; i++) {
-                setSingleValue(arr, i, buffer.removeFirst());
+            Kind instantiationKind = null;
+            Enum<?>[] enumConstants = null;
+            MethodHandle constructor = null;
+            if (customInstantiator == null) {
+                if (instanceClass.isArray()) {
+                    instantiationKind = Kind.ARRAY;
+                } else if (instanceClass.isEnum()) {
+                    instantiationKind = Kind.ENUM;
+                    enumConstants = (Enum<?>[]) instanceClass.getEnumConstants();
+                } else if (Exception.class.isAssignableFrom(instanceClass)) {
+                    instantiationKind = Kind.EXCEPTION;
+                } else {
+                    instantiationKind = Kind.CLASS;
+                    Constructor<?> declaredConstructor = instanceClass.getDeclaredConstructor();
+                    declaredConstructor.setAccessible(true);
+                    constructor = MethodHandles.lookup().unreflectConstructor(declaredConstructor)
+                            .asType(MethodType.methodType(Object.class));
+                }
             }
 
-            return arr;
+            log.debug("Compiled deserialization plan for typeSignature={}", typeSignature);
+            return new DeserializationPlan(instanceClass, instantiationKind, customInstantiator, constructor,
+                    enumConstants, classPlan);
+        }
+    }
+
+    private static MethodHandle findCustomSerializerMethod(Class<?> customSerializer, String name)
+            throws IllegalAccessException {
+        for (Method method : customSerializer.getMethods()) {
+            if (name.equals(method.getName())) {
+                return MethodHandles.lookup().unreflect(method);
+            }
         }
+        return null;
     }
 
+    /**
+     * Compiled {@link DeserializationPlan}s, by type signature, for each {@link SerializationPolicy}.
+     * Policies are weakly referenced, so that plans go away together with a replaced policy.
+     */
+    private static final Map<SerializationPolicy, Map<String, DeserializationPlan>> DESERIALIZATION_PLANS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
     private static final char JS_ESCAPE_CHAR = '\\';
 
     /**
@@ -349,14 +498,44 @@ public class SyncClientSerializationStreamReader extends AbstractSerializationSt
                 SyncClientSerializationStreamReader.ValueReader.STRING);
     }
 
-    private final List<String> results = new ArrayList<>();
+    /**
+     * The response being read. Tokens are never copied out of it:
+     * {@link #tokenBounds} records where each of them starts and ends.
+     */
+    private RpcResponseBody encoded;
+
+    /**
+     * Start (inclusive) and end (exclusive) offsets in {@link #encoded} of each token,
+     * stored as consecutive pairs.
+     */
+    private int[] tokenBounds = new int[64];
+
+    private int tokenCount;
 
     private int index;
 
-    private final List<String> stringTable = new ArrayList<>();
+    /**
+     * Start (inclusive) and end (exclusive) offsets in {@link #encoded} of the quoted content
+     * of each string table entry, stored as consecutive pairs.
+     */
+    private int[] stringBounds = new int[32];
+
+    /**
+     * Whether each string table entry contains escape sequences, i.e. cannot be copied as is.
+     */
+    private boolean[] stringEscaped = new boolean[16];
+
+    /**
+     * String table entries decoded so far.
+     */
+    private String[] strings = new String[16];
+
+    private int stringCount;
 
     private final SerializationPolicy serializationPolicy;
 
+    private final Map<String, DeserializationPlan> deserializationPlans;
+
     private static final String PRELUDE = "].concat([";
 
     private static final String POSTLUDE1 = "],[";
@@ -365,139 +544,126 @@ public class SyncClientSerializationStreamReader extends AbstractSerializationSt
 
     public SyncClientSerializationStreamReader(SerializationPolicy serializationPolicy) {
         this.serializationPolicy = serializationPolicy;
+        this.deserializationPlans = DESERIALIZATION_PLANS.computeIfAbsent(serializationPolicy, p -> new ConcurrentHashMap<>());
     }
 
+    /**
+     * Indexes the string table, without decoding its entries: they are decoded by
+     * {@link #getString(int)} when first read.
+     */
     private void buildStringTable() {
-        String raw = this.results.get(--this.index);
-        byte b1;
-        byte b2;
-        byte b3;
-        byte b4;
-
-        boolean startNewString = true;
-        StringBuilder buffer = new StringBuilder();
-        for (int i = 0; i < raw.length(); i++) {
-            char ch = raw.charAt(i);
-            if (startNewString) {
-                assert ch == '\"';
-                startNewString = false;
-                continue;
-            }
-            if (ch == '\"') { // end-of-string
-                this.stringTable.add(buffer.toString());
-
-                buffer.setLength(0);
-                startNewString = true;
-
-                if (i != raw.length() - 1) {
-                    assert raw.charAt(i + 1) == ',';
+        int token = --this.index;
+        RpcResponseBody raw = this.encoded;
+        int end = tokenEnd(token);
+
+        Arrays.fill(this.strings, 0, this.stringCount, null);
+        this.stringCount = 0;
+        int i = tokenStart(token);
+        while (i < end) {
+            assert raw.charAt(i) == '\"';
+            int start = ++i;
+            boolean escaped = false;
+            char ch;
+            while ((ch = raw.charAt(i)) != '\"') {
+                if (ch == JS_ESCAPE_CHAR) {
+                    escaped = true;
                     i++;
                 }
-                continue;
+                i++;
             }
-            if (ch == JS_ESCAPE_CHAR) {
+            addString(start, i, escaped);
+
+            // Skip the closing quote and the separator
+            i++;
+            if (i != end) {
+                assert raw.charAt(i) == ',';
                 i++;
-                ch = raw.charAt(i);
-                switch (ch) {
-                    case '0' -> // \0
-                            buffer.append('\u0000');
-                    case 'b' -> // \b
-                            buffer.append('\b');
-                    case 't' -> // \t
-                            buffer.append('\t');
-                    case 'n' -> // \n
-                            buffer.append('\n');
-                    case 'f' -> // \f
-                            buffer.append('\f');
-                    case 'r' -> // \r
-                            buffer.append('\r');
-                    case '\"' -> // \"
-                            buffer.append('\"');
-                    case '\\' -> // \\
-                            buffer.append('\\');
-                    case 'x' -> { // \\xNN
-                        b1 = hex2byte(raw.charAt(++i));
-                        b2 = hex2byte(raw.charAt(++i));
-                        ch = (char) (b1 * 16 + b2);
-                        buffer.append(ch);
-                    }
-                    case 'u' -> { // \\uNNNN
-                        b1 = hex2byte(raw.charAt(++i));
-                        b2 = hex2byte(raw.charAt(++i));
-                        b3 = hex2byte(raw.charAt(++i));
-                        b4 = hex2byte(raw.charAt(++i));
-                        ch = (char) (b1 * 16 * 16 * 16 + b2 * 16 * 16 + b3 * 16 + b4);
-                        buffer.append(ch);
-                    }
-                    default -> {
-                        // TODO:
-                        System.out.println("???");
-                        throw new RuntimeException("Unhandled JS Escape Char Type");
-                    }
-                }
-            } else {
-                buffer.append(ch);
             }
         }
     }
 
-    private String deconcat(String encoded) {
-        int start = encoded.indexOf(PRELUDE);
-        if (start > 0) {
-            StringBuilder ret = new StringBuilder(encoded.length() - PRELUDE.length());
-            ret.append(encoded, 0, start);
+    private void addString(int start, int end, boolean escaped) {
+        int n = this.stringCount;
+        if (n == this.strings.length) {
+            this.stringBounds = Arrays.copyOf(this.stringBounds, 4 * n);
+            this.stringEscaped = Arrays.copyOf(this.stringEscaped, 2 * n);
+            this.strings = Arrays.copyOf(this.strings, 2 * n);
+        }
+        this.stringBounds[2 * n] = start;
+        this.stringBounds[2 * n + 1] = end;
+        this.stringEscaped[n] = escaped;
+        this.stringCount++;
+    }
 
-            start += PRELUDE.length();
-            int end = encoded.indexOf(POSTLUDE1, start);
-            while (end > 0) {
-                ret.append(",");
-                ret.append(encoded, start, end);
+    private String decodeString(int start, int end) {
+        RpcResponseBody raw = this.encoded;
+        StringBuilder buffer = new StringBuilder(end - start);
+        byte b1;
+        byte b2;
+        byte b3;
+        byte b4;
 
-                start = end + POSTLUDE1.length();
-                end = encoded.indexOf(POSTLUDE1, start);
+        int i = start;
+        while (i < end) {
+            int escape = raw.indexOf(JS_ESCAPE_CHAR, i);
+            if (escape < 0 || escape >= end) {
+                buffer.append(raw.toString(i, end));
+                break;
             }
-
-            end = encoded.indexOf(POSTLUDE, start);
-            if (end > 0) {
-                ret.append(",");
-                ret.append(encoded, start, end + 1);
-                return ret.toString();
+            // Decode the plain run preceding the escape sequence in one go
+            buffer.append(raw.toString(i, escape));
+            i = escape + 1;
+            char ch = raw.charAt(i);
+            switch (ch) {
+                case '0' -> // \0
+                        buffer.append('\u0000');
+                case 'b' -> // \b
+                        buffer.append('\b');
+                case 't' -> // \t
+                        buffer.append('\t');
+                case 'n' -> // \n
+                        buffer.append('\n');
+                case 'f' -> // \f
+                        buffer.append('\f');
+                case 'r' -> // \r
+                        buffer.append('\r');
+                case '\"' -> // \"
+                        buffer.append('\"');
+                case '\\' -> // \\
+                        buffer.append('\\');
+                case 'x' -> { // \\xNN
+                    b1 = hex2byte(raw.charAt(++i));
+                    b2 = hex2byte(raw.charAt(++i));
+                    ch = (char) (b1 * 16 + b2);
+                    buffer.append(ch);
+                }
+                case 'u' -> { // \\uNNNN
+                    b1 = hex2byte(raw.charAt(++i));
+                    b2 = hex2byte(raw.charAt(++i));
+                    b3 = hex2byte(raw.charAt(++i));
+                    b4 = hex2byte(raw.charAt(++i));
+                    ch = (char) (b1 * 16 * 16 * 16 + b2 * 16 * 16 + b3 * 16 + b4);
+                    buffer.append(ch);
+                }
+                default -> throw new RuntimeException("Unhandled JS Escape Char Type");
             }
+            i++;
         }
-
-        return encoded;
+        return buffer.toString();
     }
 
     @Override
     protected Object deserialize(String typeSignature) throws SerializationException {
-        Object instance;
-        SerializedInstanceReference serializedInstRef = SerializabilityUtil.decodeSerializedInstanceReference(typeSignature);
-
         try {
-            // Class<?> instanceClass =
-            // Class.forName(serializedInstRef.getName(),
-            // false, null);
-            Class<?> instanceClass = ClassLoading.loadClass(serializedInstRef.getName());
-
-            assert this.serializationPolicy != null;
-
-            try {
-                this.serializationPolicy.validateDeserialize(instanceClass);
-            } catch (SerializationException e) {
-                log.warn("Failed validateDeserialize", e);
-            }
-
-            // TODO validateTypeVersions(instanceClass, serializedInstRef);
-
-            Class<?> customSerializer = SerializabilityUtil.hasCustomFieldSerializer(instanceClass);
+            DeserializationPlan plan = getDeserializationPlan(typeSignature);
 
             int index = reserveDecodedObjectIndex();
 
-            instance = instantiate(customSerializer, instanceClass);
+            Object instance = instantiate(plan);
 
             rememberDecodedObject(index, instance);
 
-            Object replacement = deserializeImpl(customSerializer, instanceClass, instance);
+            Object replacement = deserializeImpl(plan.classPlan, instance);
 
             // It's possible that deserializing an object requires the original
             // proxy
@@ -509,73 +675,62 @@ public class SyncClientSerializationStreamReader extends AbstractSerializationSt
 
             return instance;
 
-        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | IllegalArgumentException |
-                 InvocationTargetException | NoSuchMethodException e) {
+        } catch (SerializationException | Error e) {
+            throw e;
+        } catch (Throwable e) {
             throw new SerializationException(e);
         }
     }
 
+    private DeserializationPlan getDeserializationPlan(String typeSignature)
+            throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException {
+        DeserializationPlan plan = this.deserializationPlans.get(typeSignature);
+        if (plan == null) {
+            plan = DeserializationPlan.compile(typeSignature, this.serializationPolicy);
+            DeserializationPlan existing = this.deserializationPlans.putIfAbsent(typeSignature, plan);
+            if (existing != null) {
+                plan = existing;
+            }
+        }
+        return plan;
+    }
+
     /**
      * Deserialize an instance that is an array. Will default to deserializing
      * as an Object vector if the instance is not a primitive vector.
      */
-    @SuppressWarnings("unchecked")
-    private Object deserializeArray(Class<?> instanceClass, Object instance) throws SerializationException {
-        assert instanceClass.isArray();
+    private void deserializeArray(ClassPlan plan, Object instance) throws SerializationException {
+        assert plan.instanceClass.isArray();
 
-        BoundedList<Object> buffer = (BoundedList<Object>) instance;
-        VectorReader instanceReader = CLASS_TO_VECTOR_READER.get(instanceClass);
-        return Objects.requireNonNullElse(instanceReader, VectorReader.OBJECT_VECTOR).read(this, buffer);
+        plan.vectorReader.read(this, instance);
     }
 
-    private void deserializeClass(Class<?> instanceClass, Object instance)
-            throws SerializationException, IllegalAccessException,
-            NoSuchMethodException, InvocationTargetException,
-            ClassNotFoundException {
+    private void deserializeClass(ClassPlan plan, Object instance) throws Throwable {
         // Patch for Issue 36
         // if there are server fields ignore them
-        if (this.serializationPolicy.getClientFieldNamesForEnhancedClass(instanceClass) != null) {
+        if (plan.enhanced) {
             int encodedPosition = readInt();
-            log.info("For class={} received encodedField={}", instanceClass, getString(encodedPosition));
+            log.info("For class={} received encodedField={}", plan.instanceClass, getString(encodedPosition));
         }
-        Field[] serializableFields = SerializabilityUtil.applyFieldSerializationPolicy(instanceClass, this.serializationPolicy);
-        for (Field declField : serializableFields) {
-            assert declField != null;
-
-            Object value = deserializeValue(declField.getType());
-
-            boolean isAccessible = declField.isAccessible();
-            boolean needsAccessOverride = !isAccessible && !Modifier.isPublic(declField.getModifiers());
-            if (needsAccessOverride) {
-                // Override access restrictions
-                declField.setAccessible(true);
-            }
-
-            declField.set(instance, value);
+        for (FieldDeserializer fieldDeserializer : plan.fieldDeserializers) {
+            fieldDeserializer.deserialize(this, instance);
         }
 
-        Class<?> superClass = instanceClass.getSuperclass();
-        if (this.serializationPolicy.shouldDeserializeFields(superClass)) {
-            deserializeImpl(SerializabilityUtil.hasCustomFieldSerializer(superClass), superClass, instance);
+        if (plan.superClassPlan != null) {
+            deserializeImpl(plan.superClassPlan, instance);
         }
     }
 
-    private Object deserializeImpl(Class<?> customSerializer,
-                                   Class<?> instanceClass, Object instance)
-            throws NoSuchMethodException, IllegalArgumentException,
-            IllegalAccessException, InvocationTargetException,
-            SerializationException, ClassNotFoundException {
-
-        if (customSerializer != null) {
-            deserializeWithCustomFieldDeserializer(customSerializer, instanceClass, instance);
-        } else if (instanceClass.isArray()) {
-            instance = deserializeArray(instanceClass, instance);
-        } else if (instanceClass.isEnum()) {
-            // Enums are deserialized when they are instantiated
-        } else if (Exception.class.isAssignableFrom(instanceClass)) {
-            // Exceptions are deserialized when they are instantiated
-        } else {
-            deserializeClass(instanceClass, instance);
+    private Object deserializeImpl(ClassPlan plan, Object instance) throws Throwable {
+        switch (plan.kind) {
+            case CUSTOM -> {
+                plan.customDeserializer.invokeExact(this, instance);
+            }
+            case ARRAY -> deserializeArray(plan, instance);
+            case ENUM, EXCEPTION -> {
+                // Enums and exceptions are deserialized when they are instantiated
+            }
+            case CLASS -> deserializeClass(plan, instance);
         }
 
         return instance;
@@ -587,21 +742,6 @@ public class SyncClientSerializationStreamReader extends AbstractSerializationSt
         return Objects.requireNonNullElse(valueReader, ValueReader.OBJECT).readValue(this);
     }
 
-    private void deserializeWithCustomFieldDeserializer(
-            Class<?> customSerializer, Class<?> instanceClass, Object instance)
-            throws NoSuchMethodException, IllegalAccessException,
-            InvocationTargetException {
-        assert !instanceClass.isArray();
-
-        for (Method method : customSerializer.getMethods()) {
-            if ("deserialize".equals(method.getName())) {
-                method.invoke(null, this, instance);
-                return;
-            }
-        }
-        throw new NoSuchMethodException("deserialize");
-    }
-
     @Override
     protected String getString(int index) {
         if (index == 0) {
@@ -609,10 +749,17 @@ public class SyncClientSerializationStreamReader extends AbstractSerializationSt
         }
         // index is 1-based
         assert index > 0;
-        assert index <= this.stringTable.size();
-
-        // index is 1-based
-        return this.stringTable.get(index - 1);
+        assert index <= this.stringCount;
+
+        int i = index - 1;
+        String value = this.strings[i];
+        if (value == null) {
+            int start = this.stringBounds[2 * i];
+            int end = this.stringBounds[2 * i + 1];
+            value = this.stringEscaped[i] ? decodeString(start, end) : this.encoded.toString(start, end);
+            this.strings[i] = value;
+        }
+        return value;
     }
 
     private byte hex2byte(char ch) {
@@ -629,83 +776,176 @@ public class SyncClientSerializationStreamReader extends AbstractSerializationSt
         return -1;
     }
 
-    private Object instantiate(Class<?> customSerializer, Class<?> instanceClass)
-            throws InstantiationException, IllegalAccessException,
-            IllegalArgumentException, InvocationTargetException,
-            NoSuchMethodException {
-        if (customSerializer != null) {
-            for (Method method : customSerializer.getMethods()) {
-                if ("instantiate".equals(method.getName())) {
-                    return method.invoke(null, this);
-                }
-            }
-            // Ok to not have one.
+    private Object instantiate(DeserializationPlan plan) throws Throwable {
+        if (plan.customInstantiator != null) {
+            return (Object) plan.customInstantiator.invokeExact(this);
         }
 
-        if (instanceClass.isArray()) {
-            int length = readInt();
-            // We don't pre-allocate the array; this prevents an allocation
-            // attack
-            return new BoundedList<>(instanceClass.getComponentType(), length);
-        } else if (instanceClass.isEnum()) {
-            Enum<?>[] enumConstants = (Enum[]) instanceClass.getEnumConstants();
-            int ordinal = readInt();
-            assert ordinal >= 0 && ordinal < enumConstants.length;
-            return enumConstants[ordinal];
-        } else if (Exception.class.isAssignableFrom(instanceClass)) {
-            // See SerializabilityUtil.fieldQualifiesForSerialization()
-            String message = readString();
-            return new Exception(message);
-        } else {
-            Constructor<?> constructor = instanceClass.getDeclaredConstructor();
-            constructor.setAccessible(true);
-            return constructor.newInstance();
-        }
+        return switch (plan.instantiationKind) {
+            case ARRAY -> {
+                int length = readInt();
+                // Every element takes at least one token: checking the length against the
+                // remaining ones before allocating the array prevents an allocation attack
+                if (length < 0 || length > this.index) {
+                    throw new SerializationException(
+                            "Inconsistent number of elements received. Expecting " + length
+                            + " but only " + this.index + " tokens are left");
+                }
+                yield Array.newInstance(plan.instanceClass.getComponentType(), length);
+            }
+            case ENUM -> {
+                int ordinal = readInt();
+                assert ordinal >= 0 && ordinal < plan.enumConstants.length;
+                yield plan.enumConstants[ordinal];
+            }
+            case EXCEPTION -> {
+                // See SerializabilityUtil.fieldQualifiesForSerialization()
+                String message = readString();
+                if (plan.instanceClass == IncompatibleRemoteServiceException.class) {
+                    // Kept as such, since the proxy refreshes the serialization policy when receiving it
+                    yield new IncompatibleRemoteServiceException(message);
+                }
+                yield new Exception(message);
+            }
+            default -> (Object) plan.constructor.invokeExact();
+        };
     }
 
     /**
      * Parse response from GWT RPC example:
      * [3,23456,0,2,0,0,0,1,1,["dab.rpp.client.Person/1455343364"
      * ,"My dad name","GWT User"],0,5]
+     * <p>
+     * Only the bounds of each token are recorded; the raw string table, which is
+     * the only nested array, becomes a single token.
+     * <p>
+     * Large responses may be split by the server into several arrays, as in
+     * [3,23456].concat([0,2,0],[0,0,1,1,["dab.rpp.client.Person/1455343364"],0,5]).
+     * Their segments are tokenized in place, as if they were a single array.
      */
-    private void parse(String encoded) {
-        // encoded = encoded.substring(1, encoded.length()-1);
-        if (encoded.endsWith("]")) {
-            encoded = encoded.substring(1, encoded.length() - 1);
-        } else {
-            encoded = encoded.substring(1);
+    private void parse(RpcResponseBody encoded) {
+        this.encoded = encoded;
+        this.tokenCount = 0;
+
+        int start = encoded.indexOf(PRELUDE, 0);
+        if (start > 0) {
+            tokenize(1, start);
+
+            start += PRELUDE.length();
+            int end = encoded.indexOf(POSTLUDE1, start);
+            while (end > 0) {
+                tokenize(start, end);
+
+                start = end + POSTLUDE1.length();
+                end = encoded.indexOf(POSTLUDE1, start);
+            }
+
+            end = encoded.indexOf(POSTLUDE, start);
+            if (end > 0) {
+                tokenize(start, end);
+                return;
+            }
+            this.tokenCount = 0;
         }
-        StringBuilder token = new StringBuilder();
-        for (int i = 0; i < encoded.length(); i++) {
+
+        int length = encoded.length();
+        tokenize(1, length > 0 && encoded.charAt(length - 1) == ']' ? length - 1 : length);
+    }
+
+    /**
+     * Records the tokens of the comma-separated list between the given offsets.
+     */
+    private void tokenize(int from, int to) {
+        RpcResponseBody encoded = this.encoded;
+        int start = from;
+        for (int i = from; i < to; i++) {
             char ch = encoded.charAt(i);
             if (ch == ',') {
-                this.results.add(token.toString());
-                token = new StringBuilder();
-                continue;
-            }
-            if (ch == '[') {
-                int pos = encoded.lastIndexOf(']');
-                if (pos < 0) {
+                addToken(start, i);
+                start = i + 1;
+            } else if (ch == '[') {
+                int pos = encoded.lastIndexOf(']', to - 1);
+                if (pos < i) {
                     // TODO: throw exeption
                     throw new RuntimeException("Unhandled mismatch in encoded response: " + encoded);
                 }
-                this.results.add(encoded.substring(i + 1, pos));
+                addToken(i + 1, pos);
+                // Skip the closing bracket and the following comma
                 i = pos + 1;
-                continue;
+                start = i + 1;
             }
-            token.append(ch);
         }
-        if (!token.isEmpty()) {
-            this.results.add(token.toString());
+        if (start < to) {
+            addToken(start, to);
+        }
+    }
+
+    private void addToken(int start, int end) {
+        int offset = 2 * this.tokenCount;
+        if (offset == this.tokenBounds.length) {
+            this.tokenBounds = Arrays.copyOf(this.tokenBounds, 2 * offset);
         }
+        this.tokenBounds[offset] = start;
+        this.tokenBounds[offset + 1] = end;
+        this.tokenCount++;
+    }
+
+    private int tokenStart(int token) {
+        return this.tokenBounds[2 * token];
+    }
+
+    private int tokenEnd(int token) {
+        return this.tokenBounds[2 * token + 1];
+    }
+
+    /**
+     * Parses an integer token in place, with the same semantics as {@link Integer#parseInt(String)}.
+     */
+    private int parseIntToken(int token) {
+        return Integer.parseInt(this.encoded, tokenStart(token), tokenEnd(token), 10);
+    }
+
+    /**
+     * Parses a floating point token. Integral values, which are by far the most common ones,
+     * are converted without creating a String; anything else goes through {@link Double#parseDouble}.
+     */
+    private double parseDoubleToken(int token) {
+        int start = tokenStart(token);
+        int end = tokenEnd(token);
+        boolean negative = start < end && this.encoded.charAt(start) == '-';
+        int i = negative ? start + 1 : start;
+        // Up to 18 digits fit in a long, whose conversion to double is correctly rounded
+        if (i < end && end - i <= 18) {
+            long value = 0;
+            for (; i < end; i++) {
+                char ch = this.encoded.charAt(i);
+                if (ch < '0' || ch > '9') {
+                    break;
+                }
+                value = value * 10 + (ch - '0');
+            }
+            // "-0" must keep its sign, so leave it to parseDouble
+            if (i == end && !(negative && value == 0)) {
+                return negative ? -value : value;
+            }
+        }
+        return Double.parseDouble(this.encoded.toString(start, end));
     }
 
     @Override
     public void prepareToRead(String encoded) throws SerializationException {
-        encoded = deconcat(encoded);
+        prepareToRead(RpcResponseBody.of(encoded));
+    }
+
+    /**
+     * Prepares to read a response straight from its bytes, as received by
+     * {@link RpcResponseBody#bodyHandler()} (without the //OK or //EX prefix).
+     */
+    public void prepareToRead(RpcResponseBody encoded) throws SerializationException {
         parse(encoded);
-        this.index = this.results.size();
-        super.prepareToRead(encoded);
+        this.index = this.tokenCount;
+        // The encoded string is not used by the superclass, which just reads the version and flags
+        super.prepareToRead(null);
 
         if (getVersion() < SERIALIZATION_STREAM_MIN_VERSION
             || getVersion() > SERIALIZATION_STREAM_VERSION) {
@@ -721,34 +961,39 @@ public class SyncClientSerializationStreamReader extends AbstractSerializationSt
 
     @Override
     public boolean readBoolean() {
-        return !this.results.get(--this.index).equals("0");
+        int token = --this.index;
+        int start = tokenStart(token);
+        return !(tokenEnd(token) - start == 1 && this.encoded.charAt(start) == '0');
     }
 
     @Override
     public byte readByte() {
-        return Byte.parseByte(this.results.get(--this.index));
+        int value = parseIntToken(--this.index);
+        if (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+            throw new NumberFormatException("Value out of range for byte: " + value);
+        }
+        return (byte) value;
     }
 
     @Override
     public char readChar() {
-        return (char) Integer.parseInt(this.results.get(--this.index));
+        return (char) parseIntToken(--this.index);
     }
 
     @Override
     public double readDouble() {
-        return Double.parseDouble(this.results.get(--this.index));
+        return parseDoubleToken(--this.index);
     }
 
     @Override
     public float readFloat() {
-        return Float.parseFloat(this.results.get(--this.index));
+        return (float) parseDoubleToken(--this.index);
     }
 
     @Override
     public int readInt() {
         try {
-            int val = Integer.parseInt(this.results.get(--this.index));
-            return val;
+            return parseIntToken(--this.index);
         } catch (NumberFormatException nfe) {
             return 0;
         }
@@ -759,18 +1004,25 @@ public class SyncClientSerializationStreamReader extends AbstractSerializationSt
         if (getVersion() == SERIALIZATION_STREAM_MIN_VERSION) {
             return (long) readDouble() + (long) readDouble();
         } else {
-            String s = this.results.get(--this.index);
+            int token = --this.index;
+            int start = tokenStart(token);
+            int end = tokenEnd(token);
             // remove quotes
-            if (s.length() > 1) {
-                s = s.substring(1, s.length() - 1);
+            if (end - start > 1) {
+                start++;
+                end--;
             }
-            return Utils.longFromBase64(s);
+            return Utils.longFromBase64(this.encoded, start, end);
         }
     }
 
     @Override
     public short readShort() {
-        return Short.parseShort(this.results.get(--this.index));
+        int value = parseIntToken(--this.index);
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            throw new NumberFormatException("Value out of range for short: " + value);
+        }
+        return (short) value;
     }
 
     @Override
@@ -21,20 +21,29 @@ import com.google.gwt.user.client.rpc.impl.AbstractSerializationStreamWriter;
 import com.google.gwt.user.client.rpc.impl.ClientSerializationStreamWriter;
 import com.google.gwt.user.server.rpc.SerializationPolicy;
 import com.google.gwt.user.server.rpc.impl.SerializabilityUtil;
-import com.google.gwt.user.server.rpc.impl.StandardSerializationPolicy;
+import com.google.gwt.user.server.rpc.impl.TypeNameObfuscator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -78,11 +87,33 @@ public class SyncClientSerializationStreamWriter extends AbstractSerializationSt
             String[].class, SyncClientSerializationStreamWriter.VectorWriter.STRING_VECTOR
     ));
 
+    /**
+     * Compiled {@link SerializationPlan}s, by class, for each {@link SerializationPolicy}.
+     * Policies are weakly referenced, so that plans go away together with a replaced policy.
+     */
+    private static final Map<SerializationPolicy, Map<Class<?>, SerializationPlan>> SERIALIZATION_PLANS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Type signatures, by class, for each {@link SerializationPolicy}. Version 5 streams get their own
+     * map, since they may use the signatures from the policy instead of the locally computed ones.
+     */
+    private static final Map<SerializationPolicy, Map<Class<?>, String>> TYPE_SIGNATURES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+    private static final Map<SerializationPolicy, Map<Class<?>, String>> VERSION_5_TYPE_SIGNATURES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
     private final String moduleBaseURL;
     private final String serializationPolicyStrongName;
     private final SerializationPolicy serializationPolicy;
     private final RpcToken rpcToken;
-    private StringBuffer encodeBuffer;
+    private final Map<Class<?>, SerializationPlan> serializationPlans;
+    private final Map<Class<?>, String> typeSignatures;
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private RequestPrefix requestPrefix;
+    private AsciiBuffer encodeBuffer;
+    private AsciiBuffer requestBuffer;
 
 
     public SyncClientSerializationStreamWriter(String moduleBaseURL, String serializationPolicyStrongName, SerializationPolicy serializationPolicy, RpcToken rpcToken, int version) {
@@ -90,10 +121,13 @@ public class SyncClientSerializationStreamWriter extends AbstractSerializationSt
         this.serializationPolicyStrongName = serializationPolicyStrongName;
         this.serializationPolicy = serializationPolicy;
         this.rpcToken = rpcToken;
+        this.serializationPlans = SERIALIZATION_PLANS.computeIfAbsent(serializationPolicy, p -> new ConcurrentHashMap<>());
         if (rpcToken != null) {
             addFlags(FLAG_RPC_TOKEN_INCLUDED);
         }
         super.setVersion(version);
+        this.typeSignatures = (version == 5 ? VERSION_5_TYPE_SIGNATURES : TYPE_SIGNATURES)
+                .computeIfAbsent(serializationPolicy, p -> new ConcurrentHashMap<>());
     }
 
     @Override
@@ -101,6 +135,32 @@ public class SyncClientSerializationStreamWriter extends AbstractSerializationSt
         append(this.encodeBuffer, token);
     }
 
+    @Override
+    public void writeBoolean(boolean fieldValue) {
+        this.encodeBuffer.append(fieldValue ? '1' : '0').append(RPC_SEPARATOR_CHAR);
+    }
+
+    @Override
+    public void writeByte(byte fieldValue) {
+        writeInt(fieldValue);
+    }
+
+    @Override
+    public void writeChar(char ch) {
+        // just use an int, it's more foolproof
+        writeInt(ch);
+    }
+
+    @Override
+    public void writeInt(int fieldValue) {
+        this.encodeBuffer.appendInt(fieldValue).append(RPC_SEPARATOR_CHAR);
+    }
+
+    @Override
+    public void writeShort(short value) {
+        writeInt(value);
+    }
+
     @Override
     protected String getObjectTypeSignature(Object o) {
         Class<?> clazz = o.getClass();
@@ -109,6 +169,14 @@ public class SyncClientSerializationStreamWriter extends AbstractSerializationSt
             clazz = e.getDeclaringClass();
         }
 
+        String typeName = this.typeSignatures.get(clazz);
+        if (typeName == null) {
+            typeName = this.typeSignatures.computeIfAbsent(clazz, this::computeTypeSignature);
+        }
+        return typeName;
+    }
+
+    private String computeTypeSignature(Class<?> clazz) {
         String typeName = null;
         // By using the typeName from SerializabilityUtil, a request to the server may fail
         // ("Invalid type signature for java.util.ArrayList") since the local type signature is
@@ -131,9 +199,9 @@ public class SyncClientSerializationStreamWriter extends AbstractSerializationSt
                 // problem in bypassing the signature check on an old server.
                 Enum.class.isAssignableFrom(clazz)
         )) {
-            if (serializationPolicy instanceof StandardSerializationPolicy std) {
+            if (serializationPolicy instanceof TypeNameObfuscator obfuscator) {
                 try {
-                    typeName = std.getTypeIdForClass(clazz);
+                    typeName = obfuscator.getTypeIdForClass(clazz);
                 } catch (SerializationException e) {
                     throw new RuntimeException(e);
                 }
@@ -155,7 +223,10 @@ public class SyncClientSerializationStreamWriter extends AbstractSerializationSt
     @Override
     public void prepareToWrite() {
         super.prepareToWrite();
-        this.encodeBuffer = new StringBuffer();
+        this.stringIndexes.clear();
+        this.strings.clear();
+        this.requestPrefix = null;
+        this.encodeBuffer = new AsciiBuffer(256);
 
         // Write serialization policy info
         writeString(this.moduleBaseURL);
@@ -169,6 +240,77 @@ public class SyncClientSerializationStreamWriter extends AbstractSerializationSt
         }
     }
 
+    /**
+     * Prepares to write a request starting with the given prefix, instead of the serialization
+     * policy info written by {@link #prepareToWrite()}.
+     *
+     * @see #toRequestPrefix()
+     */
+    public void prepareToWrite(RequestPrefix prefix) {
+        if (this.rpcToken != null || !prefix.serializationPolicyStrongName.equals(this.serializationPolicyStrongName)) {
+            throw new IllegalArgumentException("Request prefix not compatible with this stream writer");
+        }
+        super.prepareToWrite();
+        this.stringIndexes.clear();
+        this.strings.clear();
+        this.requestPrefix = prefix;
+        this.encodeBuffer = new AsciiBuffer(prefix.payload.length + 256);
+        this.encodeBuffer.append(prefix.payload);
+    }
+
+    /**
+     * Captures what has been written so far, so that it can be reused by other writers through
+     * {@link #prepareToWrite(RequestPrefix)}, without looking up and encoding it again.
+     */
+    public RequestPrefix toRequestPrefix() {
+        if (this.rpcToken != null || this.requestPrefix != null) {
+            throw new IllegalStateException("Request prefixes can only be captured without an RpcToken and from scratch");
+        }
+        AsciiBuffer quotedStrings = new AsciiBuffer(256);
+        for (String s : this.strings) {
+            quotedStrings.appendQuoted(s).append(RPC_SEPARATOR_CHAR);
+        }
+        return new RequestPrefix(this.serializationPolicyStrongName, List.copyOf(this.strings),
+                Map.copyOf(this.stringIndexes), quotedStrings.toByteArray(), this.encodeBuffer.toByteArray());
+    }
+
+    @Override
+    protected int addString(String string) {
+        if (string == null) {
+            return 0;
+        }
+        Integer index;
+        if (this.requestPrefix != null) {
+            index = this.requestPrefix.stringIndexes.get(string);
+            if (index != null) {
+                return index;
+            }
+        }
+        index = this.stringIndexes.get(string);
+        if (index != null) {
+            return index;
+        }
+        this.strings.add(string);
+        // index is 1-based
+        index = prefixStringCount() + this.strings.size();
+        this.stringIndexes.put(string, index);
+        return index;
+    }
+
+    @Override
+    protected List<String> getStringTable() {
+        if (this.requestPrefix == null) {
+            return this.strings;
+        }
+        List<String> stringTable = new ArrayList<>(this.requestPrefix.strings);
+        stringTable.addAll(this.strings);
+        return stringTable;
+    }
+
+    private int prefixStringCount() {
+        return this.requestPrefix != null ? this.requestPrefix.strings.size() : 0;
+    }
+
     @Override
     protected void serialize(Object instance, String typeSignature) throws SerializationException {
         assert instance != null;
@@ -176,80 +318,70 @@ public class SyncClientSerializationStreamWriter extends AbstractSerializationSt
         Class<?> clazz = getClassForSerialization(instance);
         log.trace("Serialize instance={} signature={} as class={}", instance, typeSignature, clazz.getName());
 
-        this.serializationPolicy.validateSerialize(clazz);
-
-        serializeImpl(instance, clazz);
+        try {
+            serializeImpl(getSerializationPlan(clazz), instance);
+        } catch (SerializationException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SerializationException(e);
+        }
     }
 
-    /**
-     * Serialize an instance that is an array. Will default to serializing the
-     * instance as an Object vector if the instance is not a vector of
-     * primitives, Strings or Object.
-     */
-    private void serializeArray(Class<?> instanceClass, Object instance) throws SerializationException {
-        assert instanceClass.isArray();
-
-        VectorWriter instanceWriter = CLASS_TO_VECTOR_WRITER.get(instanceClass);
-        Objects.requireNonNullElse(instanceWriter, VectorWriter.OBJECT_VECTOR).write(this, instance);
+    private SerializationPlan getSerializationPlan(Class<?> clazz) throws SerializationException {
+        SerializationPlan plan = this.serializationPlans.get(clazz);
+        if (plan == null) {
+            // Only cache plans for classes accepted by the policy, so that rejected ones keep failing
+            this.serializationPolicy.validateSerialize(clazz);
+            try {
+                plan = SerializationPlan.compile(clazz, this.serializationPolicy);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new SerializationException(e);
+            }
+            SerializationPlan existing = this.serializationPlans.putIfAbsent(clazz, plan);
+            if (existing != null) {
+                plan = existing;
+            }
+        }
+        return plan;
     }
 
-    private void serializeClass(Object instance, Class<?> instanceClass) throws SerializationException {
+    private void serializeClass(SerializationPlan plan, Object instance) throws Throwable {
         assert instance != null;
 
-        Field[] serializableFields = SerializabilityUtil.applyFieldSerializationPolicy(instanceClass, this.serializationPolicy);
-
         // Serialize a null String as the server-only blob for enhanced classes. We don't actually care
         // about the value: see also the {@link SyncClientSerializationStreamReader#deserializeClass}
         // and Issue 36 of the original syncproxy project.
-        if (this.serializationPolicy.getClientFieldNamesForEnhancedClass(instanceClass) != null) {
+        if (plan.enhanced) {
             serializeValue(null, String.class);
         }
 
-        for (Field declField : serializableFields) {
-            assert declField != null;
-
-            boolean isAccessible = declField.isAccessible();
-            boolean needsAccessOverride = !isAccessible && !Modifier.isPublic(declField.getModifiers());
-            if (needsAccessOverride) {
-                // Override the access restrictions
-                declField.setAccessible(true);
-            }
-
-            Object value;
-            try {
-                value = declField.get(instance);
-                serializeValue(value, declField.getType());
-            } catch (IllegalArgumentException | IllegalAccessException e) {
-                throw new SerializationException(e);
-            }
+        for (FieldSerializer fieldSerializer : plan.fieldSerializers) {
+            fieldSerializer.serialize(this, instance);
         }
 
-        Class<?> superClass = instanceClass.getSuperclass();
-        if (this.serializationPolicy.shouldSerializeFields(superClass)) {
-            serializeImpl(instance, superClass);
+        if (plan.superClassPlan != null) {
+            serializeImpl(plan.superClassPlan, instance);
         }
     }
 
     /**
      * @see com.google.gwt.user.server.rpc.impl.ServerSerializationStreamWriter#serializeImpl
      */
-    private void serializeImpl(Object instance, Class<?> instanceClass) throws SerializationException {
+    private void serializeImpl(SerializationPlan plan, Object instance) throws Throwable {
         assert instance != null;
 
-        Class<?> customSerializer = SerializabilityUtil.hasCustomFieldSerializer(instanceClass);
-        if (customSerializer != null) {
-            // Use custom field serializer
-            serializeWithCustomSerializer(customSerializer, instance, instanceClass);
-        } else if (instanceClass.isArray()) {
-            serializeArray(instanceClass, instance);
-        } else if (instanceClass.isEnum()) {
-            writeInt(((Enum<?>) instance).ordinal());
-        } else if (Exception.class.isAssignableFrom(instanceClass)) {
+        switch (plan.kind) {
+            case CUSTOM -> {
+                // Use custom field serializer
+                log.trace("Serializing type={} with customSerializer", plan.instanceClass.getName());
+                plan.customSerializer.invokeExact(this, instance);
+            }
+            case ARRAY -> plan.vectorWriter.write(this, instance);
+            case ENUM -> writeInt(((Enum<?>) instance).ordinal());
             // See SerializabilityUtil.fieldQualifiesForSerialization()
-            writeString(((Exception) instance).getMessage());
-        } else {
+            case EXCEPTION -> writeString(((Exception) instance).getMessage());
             // Regular class instance
-            serializeClass(instance, instanceClass);
+            case CLASS -> serializeClass(plan, instance);
         }
     }
 
@@ -259,36 +391,38 @@ public class SyncClientSerializationStreamWriter extends AbstractSerializationSt
         Objects.requireNonNullElse(valueWriter, ValueWriter.OBJECT).write(this, value);
     }
 
-    private void serializeWithCustomSerializer(Class<?> customSerializer, Object instance, Class<?> instanceClass) throws SerializationException {
-        log.trace("Serializing type={} with customSerializer={}", instanceClass.getName(), customSerializer.getName());
-        try {
-            assert !instanceClass.isArray();
-
-            for (Method method : customSerializer.getMethods()) {
-                if ("serialize".equals(method.getName())) {
-                    method.invoke(null, this, instance);
-                    return;
-                }
-            }
-            throw new NoSuchMethodException("serialize");
-        } catch (SecurityException | NoSuchMethodException | IllegalArgumentException | IllegalAccessException |
-                 InvocationTargetException e) {
-            throw new SerializationException(e);
+    /**
+     * Encodes the whole request (header, string table and payload) as bytes. Since non-ASCII
+     * chars are always escaped, the request is pure ASCII, hence also valid UTF-8.
+     * <p>
+     * The returned buffer is backed by an array of this writer, which is reused by the next call:
+     * it must not be used anymore once another request is written with this writer.
+     */
+    public ByteBuffer toByteBuffer() {
+        int prefixLength = this.requestPrefix != null ? this.requestPrefix.quotedStrings.length : 0;
+        int capacity = prefixLength + this.encodeBuffer.length() + 16 * (this.strings.size() + 1);
+        if (this.requestBuffer == null) {
+            this.requestBuffer = new AsciiBuffer(capacity);
+        } else {
+            this.requestBuffer.reset(capacity);
         }
+        AsciiBuffer buffer = this.requestBuffer;
+        writeHeader(buffer);
+        writeStringTable(buffer);
+        writePayload(buffer);
+        return buffer.toByteBuffer();
     }
 
     @Override
     public String toString() {
-        StringBuffer buffer = new StringBuffer();
-        writeHeader(buffer);
-        writeStringTable(buffer);
-        writePayload(buffer);
-        return buffer.toString();
+        ByteBuffer buffer = toByteBuffer();
+        return new String(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(),
+                StandardCharsets.US_ASCII);
     }
 
-    private void writeHeader(StringBuffer buffer) {
-        append(buffer, String.valueOf(getVersion()));
-        append(buffer, String.valueOf(getFlags()));
+    private void writeHeader(AsciiBuffer buffer) {
+        buffer.appendInt(getVersion()).append(RPC_SEPARATOR_CHAR);
+        buffer.appendInt(getFlags()).append(RPC_SEPARATOR_CHAR);
     }
 
     /**
@@ -307,22 +441,25 @@ public class SyncClientSerializationStreamWriter extends AbstractSerializationSt
         }
     }
 
-    private void writePayload(StringBuffer buffer) {
-        buffer.append(this.encodeBuffer.toString());
+    private void writePayload(AsciiBuffer buffer) {
+        buffer.append(this.encodeBuffer);
     }
 
-    private void writeStringTable(StringBuffer buffer) {
-        List<String> stringTable = getStringTable();
-        append(buffer, String.valueOf(stringTable.size()));
-        for (String s : stringTable) {
-            append(buffer, quoteString(s));
+    private void writeStringTable(AsciiBuffer buffer) {
+        buffer.appendInt(prefixStringCount() + this.strings.size()).append(RPC_SEPARATOR_CHAR);
+        if (this.requestPrefix != null) {
+            // Already quoted
+            buffer.append(this.requestPrefix.quotedStrings);
+        }
+        for (String s : this.strings) {
+            buffer.appendQuoted(s).append(RPC_SEPARATOR_CHAR);
         }
     }
 
-    private static void append(StringBuffer sb, String token) {
+    private static void append(AsciiBuffer buffer, String token) {
         assert token != null;
-        sb.append(token);
-        sb.append(RPC_SEPARATOR_CHAR);
+        buffer.append(token);
+        buffer.append(RPC_SEPARATOR_CHAR);
     }
 
     /**
@@ -344,35 +481,290 @@ public class SyncClientSerializationStreamWriter extends AbstractSerializationSt
         }
     }
 
-    private static String quoteString(String str) {
-        StringBuilder buffer = new StringBuilder();
-        for (int i = 0; i < str.length(); i++) {
-            char ch = str.charAt(i);
-            switch (ch) {
-                case 0 -> buffer.append("\\0");
-                case '|' -> buffer.append("\\!");
-                case '\\' -> buffer.append("\\\\");
-                default -> {
-                    // buffer.append(ch);
-                    if (ch >= ' ' && ch <= 127) {
-                        buffer.append(ch);
-                    } else {
-                        String hex = Integer.toHexString(ch);
-                        buffer.append("\\u0000", 0, 6 - hex.length()).append(hex);
+    /**
+     * The encoded beginning of a request, which can be shared by any number of requests, made
+     * with the same serialization policy, starting with the same tokens (typically the
+     * serialization policy info, the service interface and the method signature).
+     */
+    public static final class RequestPrefix {
+        private final String serializationPolicyStrongName;
+        private final List<String> strings;
+        private final Map<String, Integer> stringIndexes;
+        private final byte[] quotedStrings;
+        private final byte[] payload;
+
+        private RequestPrefix(String serializationPolicyStrongName, List<String> strings,
+                              Map<String, Integer> stringIndexes, byte[] quotedStrings, byte[] payload) {
+            this.serializationPolicyStrongName = serializationPolicyStrongName;
+            this.strings = strings;
+            this.stringIndexes = stringIndexes;
+            this.quotedStrings = quotedStrings;
+            this.payload = payload;
+        }
+
+        public String getSerializationPolicyStrongName() {
+            return this.serializationPolicyStrongName;
+        }
+    }
+
+    /**
+     * A growable byte buffer for ASCII text, one byte per char, without the locking of a
+     * {@link StringBuffer} nor the charset conversions of a {@link String}.
+     */
+    static final class AsciiBuffer {
+        private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+        private byte[] bytes;
+        private int count;
+
+        AsciiBuffer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        int length() {
+            return this.count;
+        }
+
+        /**
+         * Empties the buffer, making room for the given number of bytes.
+         */
+        void reset(int capacity) {
+            this.count = 0;
+            ensureCapacity(capacity);
+        }
+
+        AsciiBuffer append(char ch) {
+            ensureCapacity(1);
+            this.bytes[this.count++] = (byte) ch;
+            return this;
+        }
+
+        AsciiBuffer append(String str) {
+            int length = str.length();
+            ensureCapacity(length);
+            for (int i = 0; i < length; i++) {
+                this.bytes[this.count++] = (byte) str.charAt(i);
+            }
+            return this;
+        }
+
+        AsciiBuffer append(byte[] other) {
+            ensureCapacity(other.length);
+            System.arraycopy(other, 0, this.bytes, this.count, other.length);
+            this.count += other.length;
+            return this;
+        }
+
+        AsciiBuffer append(AsciiBuffer other) {
+            ensureCapacity(other.count);
+            System.arraycopy(other.bytes, 0, this.bytes, this.count, other.count);
+            this.count += other.count;
+            return this;
+        }
+
+        /**
+         * Appends a string table entry, escaping the chars which cannot be sent as they are.
+         * Runs of chars which need no escaping are copied straight into the buffer, so that
+         * escape-free strings are written without any intermediate allocation.
+         */
+        AsciiBuffer appendQuoted(String str) {
+            int length = str.length();
+            ensureCapacity(length);
+            for (int i = 0; i < length; i++) {
+                char ch = str.charAt(i);
+                if (ch >= ' ' && ch <= 127 && ch != '|' && ch != '\\') {
+                    this.bytes[this.count++] = (byte) ch;
+                    continue;
+                }
+                // Room for the longest escape sequence, plus the rest of the string
+                ensureCapacity(6 + length - i - 1);
+                switch (ch) {
+                    case 0 -> appendEscape('0');
+                    case '|' -> appendEscape('!');
+                    case '\\' -> appendEscape('\\');
+                    default -> {
+                        appendEscape('u');
+                        this.bytes[this.count++] = HEX_DIGITS[(ch >> 12) & 0xf];
+                        this.bytes[this.count++] = HEX_DIGITS[(ch >> 8) & 0xf];
+                        this.bytes[this.count++] = HEX_DIGITS[(ch >> 4) & 0xf];
+                        this.bytes[this.count++] = HEX_DIGITS[ch & 0xf];
                     }
                 }
             }
+            return this;
         }
 
-        return buffer.toString();
-    }
+        private void appendEscape(char ch) {
+            this.bytes[this.count++] = '\\';
+            this.bytes[this.count++] = (byte) ch;
+        }
+
+        /**
+         * Appends the decimal representation of a value, without creating a String.
+         */
+        AsciiBuffer appendInt(int value) {
+            if (value == Integer.MIN_VALUE) {
+                return append(Integer.toString(value));
+            }
+            ensureCapacity(11);
+            if (value < 0) {
+                this.bytes[this.count++] = '-';
+                value = -value;
+            }
+            int start = this.count;
+            do {
+                this.bytes[this.count++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            // Digits were written from the least significant one
+            for (int i = start, j = this.count - 1; i < j; i++, j--) {
+                byte tmp = this.bytes[i];
+                this.bytes[i] = this.bytes[j];
+                this.bytes[j] = tmp;
+            }
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(this.bytes, this.count);
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(this.bytes, 0, this.count);
+        }
 
+        private void ensureCapacity(int extra) {
+            if (this.count + extra > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(2 * this.bytes.length, this.count + extra));
+            }
+        }
+    }
 
     @FunctionalInterface
     interface Writer {
         void write(SyncClientSerializationStreamWriter stream, Object instance) throws SerializationException;
     }
 
+    /**
+     * Reads a single field from an instance and writes it to the stream.
+     */
+    @FunctionalInterface
+    private interface FieldSerializer {
+        void serialize(SyncClientSerializationStreamWriter stream, Object instance) throws Throwable;
+    }
+
+    private enum Kind {
+        CUSTOM, ARRAY, ENUM, EXCEPTION, CLASS
+    }
+
+    /**
+     * Everything needed to encode instances of a class under a given serialization policy,
+     * resolved once so that encoding does no reflective lookups. Superclasses whose fields are
+     * serialized are chained.
+     */
+    private static final class SerializationPlan {
+        private static final MethodType CUSTOM_SERIALIZER_TYPE =
+                MethodType.methodType(void.class, SyncClientSerializationStreamWriter.class, Object.class);
+
+        final Class<?> instanceClass;
+        final Kind kind;
+        final MethodHandle customSerializer;
+        final VectorWriter vectorWriter;
+        final boolean enhanced;
+        final FieldSerializer[] fieldSerializers;
+        final SerializationPlan superClassPlan;
+
+        private SerializationPlan(Class<?> instanceClass, Kind kind, MethodHandle customSerializer, VectorWriter vectorWriter,
+                                  boolean enhanced, FieldSerializer[] fieldSerializers, SerializationPlan superClassPlan) {
+            this.instanceClass = instanceClass;
+            this.kind = kind;
+            this.customSerializer = customSerializer;
+            this.vectorWriter = vectorWriter;
+            this.enhanced = enhanced;
+            this.fieldSerializers = fieldSerializers;
+            this.superClassPlan = superClassPlan;
+        }
+
+        static SerializationPlan compile(Class<?> instanceClass, SerializationPolicy serializationPolicy)
+                throws NoSuchMethodException, IllegalAccessException {
+            Class<?> customSerializer = SerializabilityUtil.hasCustomFieldSerializer(instanceClass);
+            if (customSerializer != null) {
+                assert !instanceClass.isArray();
+                for (Method method : customSerializer.getMethods()) {
+                    if ("serialize".equals(method.getName())) {
+                        MethodHandle serializer = MethodHandles.lookup().unreflect(method).asType(CUSTOM_SERIALIZER_TYPE);
+                        return new SerializationPlan(instanceClass, Kind.CUSTOM, serializer, null, false, null, null);
+                    }
+                }
+                throw new NoSuchMethodException("serialize");
+            } else if (instanceClass.isArray()) {
+                VectorWriter vectorWriter = CLASS_TO_VECTOR_WRITER.get(instanceClass);
+                return new SerializationPlan(instanceClass, Kind.ARRAY, null,
+                        Objects.requireNonNullElse(vectorWriter, VectorWriter.OBJECT_VECTOR), false, null, null);
+            } else if (instanceClass.isEnum()) {
+                return new SerializationPlan(instanceClass, Kind.ENUM, null, null, false, null, null);
+            } else if (Exception.class.isAssignableFrom(instanceClass)) {
+                return new SerializationPlan(instanceClass, Kind.EXCEPTION, null, null, false, null, null);
+            }
+
+            boolean enhanced = serializationPolicy.getClientFieldNamesForEnhancedClass(instanceClass) != null;
+            Field[] serializableFields = SerializabilityUtil.applyFieldSerializationPolicy(instanceClass, serializationPolicy);
+            FieldSerializer[] fieldSerializers = new FieldSerializer[serializableFields.length];
+            for (int i = 0; i < serializableFields.length; i++) {
+                fieldSerializers[i] = createFieldSerializer(serializableFields[i]);
+            }
+
+            Class<?> superClass = instanceClass.getSuperclass();
+            SerializationPlan superClassPlan = serializationPolicy.shouldSerializeFields(superClass)
+                    ? compile(superClass, serializationPolicy)
+                    : null;
+
+            return new SerializationPlan(instanceClass, Kind.CLASS, null, null, enhanced, fieldSerializers, superClassPlan);
+        }
+
+        private static FieldSerializer createFieldSerializer(Field field) throws IllegalAccessException {
+            assert field != null;
+
+            // Override the access restrictions, if possible
+            field.trySetAccessible();
+            MethodHandle getter = MethodHandles.lookup().unreflectGetter(field);
+
+            Class<?> type = field.getType();
+            if (type == boolean.class) {
+                MethodHandle mh = getter.asType(MethodType.methodType(boolean.class, Object.class));
+                return (stream, instance) -> stream.writeBoolean((boolean) mh.invokeExact(instance));
+            } else if (type == byte.class) {
+                MethodHandle mh = getter.asType(MethodType.methodType(byte.class, Object.class));
+                return (stream, instance) -> stream.writeByte((byte) mh.invokeExact(instance));
+            } else if (type == char.class) {
+                MethodHandle mh = getter.asType(MethodType.methodType(char.class, Object.class));
+                return (stream, instance) -> stream.writeChar((char) mh.invokeExact(instance));
+            } else if (type == double.class) {
+                MethodHandle mh = getter.asType(MethodType.methodType(double.class, Object.class));
+                return (stream, instance) -> stream.writeDouble((double) mh.invokeExact(instance));
+            } else if (type == float.class) {
+                MethodHandle mh = getter.asType(MethodType.methodType(float.class, Object.class));
+                return (stream, instance) -> stream.writeFloat((float) mh.invokeExact(instance));
+            } else if (type == int.class) {
+                MethodHandle mh = getter.asType(MethodType.methodType(int.class, Object.class));
+                return (stream, instance) -> stream.writeInt((int) mh.invokeExact(instance));
+            } else if (type == long.class) {
+                MethodHandle mh = getter.asType(MethodType.methodType(long.class, Object.class));
+                return (stream, instance) -> stream.writeLong((long) mh.invokeExact(instance));
+            } else if (type == short.class) {
+                MethodHandle mh = getter.asType(MethodType.methodType(short.class, Object.class));
+                return (stream, instance) -> stream.writeShort((short) mh.invokeExact(instance));
+            } else if (type == String.class) {
+                MethodHandle mh = getter.asType(MethodType.methodType(String.class, Object.class));
+                return (stream, instance) -> stream.writeString((String) mh.invokeExact(instance));
+            }
+
+            // Arrays of primitive or reference types need to go through writeObject.
+            MethodHandle mh = getter.asType(MethodType.methodType(Object.class, Object.class));
+            return (stream, instance) -> stream.writeObject((Object) mh.invokeExact(instance));
+        }
+    }
+
     /**
      * Enumeration used to provided typed instance writers.
      */
@@ -11,10 +11,16 @@ public class Utils {
      * Copied from com.google.gwt.lang.LongLib
      */
     public static long longFromBase64(String value) {
-        int pos = 0;
+        return longFromBase64(value, 0, value.length());
+    }
+
+    /**
+     * Decodes the base-64 encoded long in the given range of a char sequence, without copying it.
+     */
+    public static long longFromBase64(CharSequence value, int start, int end) {
+        int pos = start;
         long longVal = base64Value(value.charAt(pos++));
-        int len = value.length();
-        while (pos < len) {
+        while (pos < end) {
             longVal <<= 6;
             longVal |= base64Value(value.charAt(pos++));
         }
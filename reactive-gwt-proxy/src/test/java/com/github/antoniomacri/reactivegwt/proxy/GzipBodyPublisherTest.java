@@ -0,0 +1,86 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Flow;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class GzipBodyPublisherTest {
+
+    private static final class CollectingSubscriber implements Flow.Subscriber<ByteBuffer> {
+        final List<ByteBuffer> chunks = new ArrayList<>();
+        Flow.Subscription subscription;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            chunks.add(item);
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throw new AssertionError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        byte[] gunzip() throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (ByteBuffer chunk : chunks) {
+                out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+            }
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+                return in.readAllBytes();
+            }
+        }
+    }
+
+    @Test
+    public void shouldGzipPayloadOneChunkAtATime() throws IOException {
+        byte[] payload = new byte[100_000];
+        new Random(42).nextBytes(payload);
+
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        new GzipBodyPublisher(ByteBuffer.wrap(payload)).subscribe(subscriber);
+
+        assertThat(subscriber.completed).isTrue();
+        assertThat(subscriber.chunks).hasSizeGreaterThan(1);
+        assertThat(subscriber.gunzip()).isEqualTo(payload);
+    }
+
+    @Test
+    public void shouldStartOverOnEverySubscription() throws IOException {
+        byte[] payload = "7|0|4|http://test/|test-policy|".repeat(500).getBytes(StandardCharsets.US_ASCII);
+        GzipBodyPublisher publisher = new GzipBodyPublisher(ByteBuffer.wrap(payload, 6, payload.length - 6));
+
+        CollectingSubscriber first = new CollectingSubscriber();
+        publisher.subscribe(first);
+        CollectingSubscriber second = new CollectingSubscriber();
+        publisher.subscribe(second);
+
+        assertThat(publisher.contentLength()).isEqualTo(-1);
+        assertThat(first.gunzip()).isEqualTo(second.gunzip());
+        assertThat(second.gunzip()).hasSize(payload.length - 6);
+    }
+}
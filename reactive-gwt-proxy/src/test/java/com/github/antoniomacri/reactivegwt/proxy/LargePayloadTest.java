@@ -5,6 +5,8 @@ import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.shrinkwrap.api.spec.WebArchive;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
@@ -40,4 +42,18 @@ public class LargePayloadTest extends RpcAsyncTestBase<LargePayloadService, Larg
         service.testLargeResponsePayload(waitedCallback(result ->
                 assertThat(result.size()).as("Wrong list size").isEqualTo(LargePayloadService.PAYLOAD_SIZE)));
     }
+
+    @Test
+    public void testCompressedResponseSizes() {
+        ProxySettings settings = createSettings(LargePayloadService.class);
+        settings.setResponseCompressionEnabled(true);
+        LargePayloadServiceAsync compressedService = ReactiveGWT.create(LargePayloadService.class, settings);
+
+        List<UserInfo> result = getFromServiceCall(compressedService::testLargeResponsePayload);
+        assertThat(result).hasSize(LargePayloadService.PAYLOAD_SIZE);
+
+        ResponseSizeCounters counters = settings.getResponseSizeCounters();
+        assertThat(counters.getResponses()).isEqualTo(1);
+        assertThat(counters.getEncodedBytes()).isPositive().isLessThan(counters.getDecodedBytes());
+    }
 }
@@ -23,8 +23,12 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -51,6 +55,7 @@ public class OrderServiceUpdatedTest {
     WireMockServer wm;
     RpcPolicyFinder policyFinder;
     InstantSource instantSource;
+    ProxySettings settings;
     OrderServiceAsync service;
 
 
@@ -73,7 +78,7 @@ public class OrderServiceUpdatedTest {
     }
 
     private OrderServiceAsync getService() {
-        ProxySettings settings = new ProxySettings(getModuleBaseURL(), OrderService.class.getName(), policyFinder);
+        settings = new ProxySettings(getModuleBaseURL(), OrderService.class.getName(), policyFinder);
         settings.setInstantSource(instantSource);
         OrderServiceAsync service = ReactiveGWT.create(OrderService.class, settings);
         ((ServiceDefTarget) service).setServiceEntryPoint(getModuleBaseURL() + "orders");
@@ -103,14 +108,14 @@ public class OrderServiceUpdatedTest {
 
         serveOrderServiceUpdated();
 
-        // The second call obtains an internal server error, so the new serialization policy is fetched (*)
-        // and then the call is retried and succeeds
+        // The second call obtains an internal server error, so the module is checked (*) and, since it was
+        // compiled again, the new serialization policy is fetched and then the call is retried and succeeds
         invokeServiceAndExpectResult();
 
         inOrder = inOrder(policyFinder);
         inOrder.verify(policyFinder, times(1)).getOrFetchPolicyNameAsync(eq(OrderService.class.getName()), any());
         inOrder.verify(policyFinder, times(1)).getSerializationPolicy(eq("49500BE2C20C979AD4B0A80E6F04FA03"));
-        inOrder.verify(policyFinder, times(1)).fetchPolicyNameAsync(eq(OrderService.class.getName()), any());  // (*)
+        inOrder.verify(policyFinder, times(1)).checkPolicyNameAsync(eq(OrderService.class.getName()), any());  // (*)
         inOrder.verify(policyFinder, times(1)).getSerializationPolicy(eq("49CEE67A18790BD431604E4192544D7F"));
         inOrder.verifyNoMoreInteractions();
     }
@@ -139,7 +144,7 @@ public class OrderServiceUpdatedTest {
         inOrder = inOrder(policyFinder);
         inOrder.verify(policyFinder, times(1)).getOrFetchPolicyNameAsync(eq(OrderService.class.getName()), any());
         inOrder.verify(policyFinder, times(1)).getSerializationPolicy(eq("49500BE2C20C979AD4B0A80E6F04FA03"));
-        inOrder.verify(policyFinder, times(1)).fetchPolicyNameAsync(eq(OrderService.class.getName()), any());  // (*)
+        inOrder.verify(policyFinder, times(1)).checkPolicyNameAsync(eq(OrderService.class.getName()), any());  // (*)
         inOrder.verifyNoMoreInteractions();
 
         Mockito.reset(policyFinder);
@@ -172,15 +177,15 @@ public class OrderServiceUpdatedTest {
 
         serveOrderServiceUpdatedReturning500();
 
-        // The second call obtains an internal server error, so the new serialization policy is fetched (*)
-        // and then the call is retried, but we still get a 500. However, we do NOT fetch the serialization
+        // The second call obtains an internal server error, so the module is checked (*) and the new serialization
+        // policy is fetched, then the call is retried, but we still get a 500. However, we do NOT fetch the serialization
         // policy again, since the min interval has not elapsed
         invokeServiceAndExpectInternalServerError();
 
         inOrder = inOrder(policyFinder);
         inOrder.verify(policyFinder, times(1)).getOrFetchPolicyNameAsync(eq(OrderService.class.getName()), any());
         inOrder.verify(policyFinder, times(1)).getSerializationPolicy(eq("49500BE2C20C979AD4B0A80E6F04FA03"));
-        inOrder.verify(policyFinder, times(1)).fetchPolicyNameAsync(eq(OrderService.class.getName()), any());  // (*)
+        inOrder.verify(policyFinder, times(1)).checkPolicyNameAsync(eq(OrderService.class.getName()), any());  // (*)
         inOrder.verify(policyFinder, times(1)).getSerializationPolicy(eq("49CEE67A18790BD431604E4192544D7F"));
         inOrder.verifyNoMoreInteractions();
     }
@@ -208,19 +213,92 @@ public class OrderServiceUpdatedTest {
 
         when(instantSource.instant()).thenReturn(Instant.now().plus(6, ChronoUnit.MINUTES));
 
-        // Now, we again obtain an internal server error, but this time the new serialization policy is actually
-        // fetched (*), since the min interval has elapsed (but then, in this case, the call is NOT retried because
-        // the policy did not change)
+        // Now, we again obtain an internal server error, but this time the module is actually checked (*), since
+        // the min interval has elapsed (but then, in this case, the call is NOT retried because the module was not
+        // compiled again)
         invokeServiceAndExpectInternalServerError();
 
         inOrder = inOrder(policyFinder);
         inOrder.verify(policyFinder, times(1)).getOrFetchPolicyNameAsync(eq(OrderService.class.getName()), any());
         inOrder.verify(policyFinder, times(1)).getSerializationPolicy(eq("49CEE67A18790BD431604E4192544D7F"));
-        inOrder.verify(policyFinder, times(1)).fetchPolicyNameAsync(eq(OrderService.class.getName()), any());  // (*)
+        inOrder.verify(policyFinder, times(1)).checkPolicyNameAsync(eq(OrderService.class.getName()), any());  // (*)
         inOrder.verifyNoMoreInteractions();
     }
 
 
+    @Test
+    public void whenIncompatibleRemoteServiceExceptionIsReceivedThenShouldRefetchSerializationPolicyAndRetryCall() throws InterruptedException, IOException {
+        serveOrderService();
+        invokeServiceAndExpectResult();
+        Mockito.reset(policyFinder);
+
+        serveOrderServiceUpdated();
+        // As the GWT servlet does when it cannot find the policy of the request
+        wm.stubFor(post("/" + MODULE_RELATIVE_PATH + "orders")
+                .withRequestBody(containing("|49500BE2C20C979AD4B0A80E6F04FA03|"))
+                .willReturn(aResponse()
+                        .withBody("//EX[2,1,[\"com.google.gwt.user.client.rpc.IncompatibleRemoteServiceException/3936916533\"," +
+                                  "\"Type 'OrderItem' was not assignable to 'IsSerializable'\"],0,7]")
+                ));
+
+        invokeServiceAndExpectResult();
+
+        InOrder inOrder = inOrder(policyFinder);
+        inOrder.verify(policyFinder, times(1)).getOrFetchPolicyNameAsync(eq(OrderService.class.getName()), any());
+        inOrder.verify(policyFinder, times(1)).getSerializationPolicy(eq("49500BE2C20C979AD4B0A80E6F04FA03"));
+        inOrder.verify(policyFinder, times(1)).fetchPolicyNameAsync(eq(OrderService.class.getName()), any());
+        inOrder.verify(policyFinder, times(1)).getSerializationPolicy(eq("49CEE67A18790BD431604E4192544D7F"));
+        inOrder.verifyNoMoreInteractions();
+        assertThat(settings.getPolicyRefreshCounters().get(PolicyRefreshCounters.Decision.FETCHED)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotRefetchSerializationPolicyWhen500IsNotFromTheGwtServlet() throws InterruptedException, IOException {
+        serveOrderService();
+        invokeServiceAndExpectResult();
+        Mockito.reset(policyFinder);
+
+        wm.stubFor(post("/" + MODULE_RELATIVE_PATH + "orders")
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.SC_INTERNAL_SERVER_ERROR)
+                        .withBody("<html><body>Upstream connect error</body></html>")
+                ));
+
+        invokeServiceAndExpectInternalServerError();
+
+        InOrder inOrder = inOrder(policyFinder);
+        inOrder.verify(policyFinder, times(1)).getOrFetchPolicyNameAsync(eq(OrderService.class.getName()), any());
+        inOrder.verify(policyFinder, times(1)).getSerializationPolicy(eq("49500BE2C20C979AD4B0A80E6F04FA03"));
+        inOrder.verifyNoMoreInteractions();
+        assertThat(settings.getPolicyRefreshCounters().get(PolicyRefreshCounters.Decision.NOT_POLICY_RELATED)).isEqualTo(1);
+        assertThat(settings.getPolicyRefreshCounters().get(PolicyRefreshCounters.Decision.FETCHED)).isZero();
+    }
+
+    @Test
+    public void shouldOnlyCheckModuleWhenGenericFailureIsReceived() throws InterruptedException, IOException {
+        serveOrderService();
+        invokeServiceAndExpectResult();
+        Mockito.reset(policyFinder);
+        wm.resetRequests();
+
+        wm.stubFor(post("/" + MODULE_RELATIVE_PATH + "orders")
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.SC_INTERNAL_SERVER_ERROR)
+                        .withBody("The call failed on the server; see server log for details")
+                ));
+
+        invokeServiceAndExpectInternalServerError();
+
+        verify(policyFinder, times(1)).checkPolicyNameAsync(eq(OrderService.class.getName()), any());
+        verify(policyFinder, never()).fetchPolicyNameAsync(any(), any());
+        assertThat(settings.getPolicyRefreshCounters().get(PolicyRefreshCounters.Decision.CHECKED_MODULE)).isEqualTo(1);
+        assertThat(settings.getPolicyRefreshCounters().get(PolicyRefreshCounters.Decision.FETCHED)).isZero();
+        // The module was not compiled again, so its policies were not discovered again
+        wm.verify(1, getRequestedFor(urlEqualTo("/" + MODULE_RELATIVE_PATH + "AppModule.nocache.js")));
+        wm.verify(0, getRequestedFor(urlMatching(".*\\.(cache\\.js|gwt\\.rpc|txt)")));
+    }
+
+
     private void serveOrderService() throws IOException {
         serveStaticFile("orders", "AppModule.nocache.js");
         serveStaticFile("orders", "compilation-mappings.txt");
@@ -0,0 +1,62 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class QuotedNameScannerTest {
+
+    private static List<String> scan(String text, char quote, int chunkSize) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        QuotedNameScanner scanner = new QuotedNameScanner(quote);
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            scanner.scan(ByteBuffer.wrap(bytes, i, Math.min(chunkSize, bytes.length - i)));
+        }
+        return scanner.getNames();
+    }
+
+    @Test
+    public void shouldFindQuotedNamesAcrossChunks() {
+        String text = "var a='3321E14570191EE254AB43C1F1A74C9E',b=\"49500BE2C20C979AD4B0A80E6F04FA03\";"
+                      + "c='49500BE2C20C979AD4B0A80E6F04FA0'," // too short
+                      + "d='49500BE2C20C979AD4B0A80E6F04FA031'," // too long
+                      + "e='49500be2c20c979ad4b0a80e6f04fa03'," // lowercase
+                      + "f='é''F46FD829C9E33DC26898B6707DE48047''";
+
+        assertThat(scan(text, '\'', 5)).containsExactly(
+                "3321E14570191EE254AB43C1F1A74C9E", "F46FD829C9E33DC26898B6707DE48047");
+        assertThat(scan(text, '"', 1)).containsExactly("49500BE2C20C979AD4B0A80E6F04FA03");
+    }
+
+    @Test
+    public void shouldFindTheSameNamesAsTheRegularExpression() {
+        Pattern pattern = Pattern.compile("'([A-Z0-9]){32}'");
+        Random random = new Random(7);
+        String alphabet = "''AB09Zaé\"";
+        for (int n = 0; n < 200; n++) {
+            StringBuilder text = new StringBuilder();
+            while (text.length() < 400) {
+                if (random.nextInt(4) == 0) {
+                    text.append('\'');
+                    for (int i = 0; i < 31 + random.nextInt(3); i++) {
+                        text.append((char) ('A' + random.nextInt(26)));
+                    }
+                } else {
+                    text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+            }
+
+            List<String> expected = pattern.matcher(text).results()
+                    .map(mr -> mr.group().replace("'", ""))
+                    .toList();
+            assertThat(scan(text.toString(), '\'', 1 + random.nextInt(64))).isEqualTo(expected);
+        }
+    }
+}
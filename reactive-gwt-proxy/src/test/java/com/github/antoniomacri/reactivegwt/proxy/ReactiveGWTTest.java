@@ -192,6 +192,18 @@ public class ReactiveGWTTest {
                 .satisfies(e -> ((SyncProxyException) e).verify(InfoType.SERVICE_BASE));
     }
 
+    @Test
+    public void shouldCreateProxyForModuleBaseURLWithoutModuleName() {
+        String moduleBaseURL = "http://localhost:8080/";
+        try {
+            Object service = ReactiveGWT.create(InnerTestService.class, moduleBaseURL);
+            assertThat(service).isInstanceOf(InnerTestServiceAsync.class);
+            assertThat(ClasspathSerializationPolicyStore.forModule(moduleBaseURL)).isNull();
+        } finally {
+            RpcPolicyFinder.removeModule(moduleBaseURL);
+        }
+    }
+
     @Test
     public void testRemoveLeadingSlashFromRemoteServiceRelativePathAnnotation() {
         assertThat(ReactiveGWT.getRemoteServiceRelativePathFromAnnotation(InnerTestServiceStartingWithSlash.class))
@@ -7,8 +7,12 @@ package com.github.antoniomacri.reactivegwt.proxy;
 import com.github.antoniomacri.reactivegwt.proxy.test.MissingTestServiceAsync;
 import com.github.antoniomacri.reactivegwt.proxy.test.TestService;
 import com.github.antoniomacri.reactivegwt.proxy.test.TestServiceAsync;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+import com.google.gwt.user.client.rpc.impl.RequestCallbackAdapter.ResponseReader;
 import org.junit.jupiter.api.Test;
 
+import java.lang.reflect.Method;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Fail.fail;
 
@@ -40,4 +44,18 @@ public class RemoteServiceInvocationHandlerTest {
             // ignored
         }
     }
+
+    @Test
+    public void testInvocationPlanIsBuiltOnceAndCached() throws NoSuchMethodException {
+        RemoteServiceInvocationHandler handler = new RemoteServiceInvocationHandler(new ProxySettings("http://localhost/", OrderService.class.getName()));
+        Method method = OrderServiceAsync.class.getMethod("echo", OrderItem.class, AsyncCallback.class);
+
+        RemoteServiceInvocationHandler.InvocationPlan plan = handler.getInvocationPlan(method);
+
+        assertThat(plan.syncMethod).isEqualTo(OrderService.class.getMethod("echo", OrderItem.class));
+        assertThat(plan.paramCount).isEqualTo(1);
+        assertThat(plan.paramTypeNames).containsExactly(OrderItem.class.getName());
+        assertThat(plan.responseReader).isEqualTo(ResponseReader.OBJECT);
+        assertThat(handler.getInvocationPlan(method)).isSameAs(plan);
+    }
 }
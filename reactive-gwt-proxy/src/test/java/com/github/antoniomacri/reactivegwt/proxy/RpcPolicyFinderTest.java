@@ -4,17 +4,41 @@ import com.github.tomakehurst.wiremock.WireMockServer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.http.HttpTimeoutException;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 
 public class RpcPolicyFinderTest {
@@ -89,4 +113,429 @@ public class RpcPolicyFinderTest {
         String policyName = policyFinder.getOrFetchPolicyName(OrderService.class.getName());
         assertThat(policyName).isEqualTo("3639CB2AF30F48928BE6AA30F1CD8E92");
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldShareFinderAndPoliciesOfTheSameModule() {
+        serveFolder("orders");
+
+        RpcPolicyFinder sharedFinder = RpcPolicyFinder.forModule(getModuleBaseURL());
+        assertThat(RpcPolicyFinder.forModule(" " + getModuleBaseURL())).isSameAs(sharedFinder);
+        assertThat(RpcPolicyFinder.forModule(getModuleBaseURL() + "other/")).isNotSameAs(sharedFinder);
+
+        RpcPolicyFinder otherFinder = new RpcPolicyFinder(getModuleBaseURL());
+        String policyName = sharedFinder.getOrFetchPolicyName(OrderService.class.getName());
+        assertThat(otherFinder.getOrFetchPolicyName(OrderService.class.getName())).isEqualTo(policyName);
+        assertThat(otherFinder.getSerializationPolicy(policyName)).isSameAs(sharedFinder.getSerializationPolicy(policyName));
+
+        assertThat(RpcPolicyFinder.removeModule(getModuleBaseURL())).isTrue();
+        assertThat(RpcPolicyFinder.removeModule(getModuleBaseURL())).isFalse();
+        assertThat(RpcPolicyFinder.forModule(getModuleBaseURL())).isNotSameAs(sharedFinder);
+        RpcPolicyFinder.removeModule(getModuleBaseURL());
+        RpcPolicyFinder.removeModule(getModuleBaseURL() + "other/");
+    }
+
+    @Test
+    void shouldShareFinderUsingTheGivenStore(@TempDir Path storeDirectory) {
+        serveFolder("orders");
+
+        RpcPolicyFinder sharedFinder = RpcPolicyFinder.forModule(getModuleBaseURL(),
+                url -> DirectorySerializationPolicyStore.forModule(storeDirectory, url));
+        try {
+            assertThat(RpcPolicyFinder.forModule(getModuleBaseURL())).isSameAs(sharedFinder);
+            assertThat(sharedFinder.getOrFetchPolicyName(OrderService.class.getName())).isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+            assertThat(storeDirectory.resolve(DirectorySerializationPolicyStore.getModuleDirectoryName(getModuleBaseURL()))
+                    .resolve("49500BE2C20C979AD4B0A80E6F04FA03.gwt.rpc")).exists();
+        } finally {
+            RpcPolicyFinder.removeModule(getModuleBaseURL());
+        }
+    }
+
+    @Test
+    void shouldNotSharePoliciesParsedForAnotherClassLoader() {
+        serveFolder("orders");
+
+        RpcPolicyFinder policyFinder = new RpcPolicyFinder(getModuleBaseURL());
+        String policyName = policyFinder.getOrFetchPolicyName(OrderService.class.getName());
+
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(new ClassLoader(contextClassLoader) {
+        });
+        try {
+            RpcPolicyFinder otherFinder = new RpcPolicyFinder(getModuleBaseURL());
+            assertThat(otherFinder.fetchPolicyNameAsync(OrderService.class.getName(), Runnable::run).toCompletableFuture().join())
+                    .isEqualTo(policyName);
+            assertThat(otherFinder.getSerializationPolicy(policyName)).isNotSameAs(policyFinder.getSerializationPolicy(policyName));
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    @Test
+    void shouldRunASingleFetchForConcurrentRequests() {
+        serveFolder("orders");
+
+        RpcPolicyFinder policyFinder = new RpcPolicyFinder(getModuleBaseURL());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<CompletableFuture<String>> policyNames = IntStream.range(0, 50)
+                    .mapToObj(i -> policyFinder.getOrFetchPolicyNameAsync(OrderService.class.getName(), executor).toCompletableFuture())
+                    .toList();
+
+            assertThat(policyNames).allSatisfy(policyName ->
+                    assertThat(policyName.join()).isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03"));
+        } finally {
+            executor.shutdown();
+        }
+        wm.verify(1, getRequestedFor(urlEqualTo("/" + MODULE_RELATIVE_PATH + "AppModule.nocache.js")));
+        wm.verify(1, getRequestedFor(urlEqualTo("/" + MODULE_RELATIVE_PATH + "49500BE2C20C979AD4B0A80E6F04FA03.gwt.rpc")));
+
+        // Once the fetch completed, a refresh goes to the server again
+        assertThat(policyFinder.fetchPolicyNameAsync(OrderService.class.getName(), Runnable::run).toCompletableFuture().join())
+                .isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+        wm.verify(2, getRequestedFor(urlEqualTo("/" + MODULE_RELATIVE_PATH + "AppModule.nocache.js")));
+    }
+
+    @Test
+    void shouldFailAFetchWhichDoesNotAnswerInTime() {
+        serveFolder("orders");
+        String noCacheJsPath = "/" + MODULE_RELATIVE_PATH + "AppModule.nocache.js";
+        wm.stubFor(get(noCacheJsPath).atPriority(1).willReturn(aResponse().withFixedDelay(10_000)));
+
+        RpcPolicyFinder policyFinder = new RpcPolicyFinder(getModuleBaseURL());
+        policyFinder.setRequestTimeout(Duration.ofMillis(200));
+        CompletableFuture<String> policyName = policyFinder.getOrFetchPolicyNameAsync(OrderService.class.getName(), Runnable::run)
+                .toCompletableFuture();
+        assertThatThrownBy(() -> policyName.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasRootCauseInstanceOf(HttpTimeoutException.class);
+
+        // The failed fetch is not joined by later calls
+        wm.removeStub(wm.listAllStubMappings().getMappings().stream()
+                .filter(stub -> stub.getPriority() != null && stub.getPriority() == 1)
+                .findFirst().orElseThrow());
+        assertThat(policyFinder.getOrFetchPolicyName(OrderService.class.getName())).isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+        assertThatThrownBy(() -> policyFinder.setRequestTimeout(Duration.ZERO)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldStartFromStoredPoliciesAndRevalidateThem(@TempDir Path storeDirectory) {
+        serveFolder("orders");
+
+        DirectorySerializationPolicyStore store = new DirectorySerializationPolicyStore(storeDirectory);
+        RpcPolicyFinder policyFinder = new RpcPolicyFinder(getModuleBaseURL(), store);
+        assertThat(policyFinder.getOrFetchPolicyName(OrderService.class.getName())).isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+        assertThat(storeDirectory.resolve("49500BE2C20C979AD4B0A80E6F04FA03.gwt.rpc")).exists();
+
+        // A new finder (as after a restart) calls the service before the module answers
+        wm.resetAll();
+        RpcPolicyFinder restartedPolicyFinder = new RpcPolicyFinder(getModuleBaseURL(), store);
+        assertThat(restartedPolicyFinder.getOrFetchPolicyNameAsync(OrderService.class.getName(), Runnable::run).toCompletableFuture().getNow(null))
+                .isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+        assertThat(restartedPolicyFinder.getSerializationPolicy("49500BE2C20C979AD4B0A80E6F04FA03")).isNotNull();
+
+        // Joins the revalidation in background, which finds nothing and keeps the stored policies
+        restartedPolicyFinder.fetchPolicyNameAsync(OrderService.class.getName(), Runnable::run).toCompletableFuture().join();
+        wm.verify(1, getRequestedFor(urlEqualTo("/" + MODULE_RELATIVE_PATH + "AppModule.nocache.js")));
+        assertThat(restartedPolicyFinder.getOrFetchPolicyName(OrderService.class.getName())).isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+        assertThat(storeDirectory.resolve("49500BE2C20C979AD4B0A80E6F04FA03.gwt.rpc")).exists();
+    }
+
+    @Test
+    void shouldLoadStoredPoliciesFromTheirBinaryForm(@TempDir Path storeDirectory) throws IOException {
+        String policyName = "49500BE2C20C979AD4B0A80E6F04FA03";
+        String policyContent;
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("orders/" + policyName + ".gwt.rpc")) {
+            policyContent = new String(Objects.requireNonNull(inputStream).readAllBytes(), StandardCharsets.UTF_8);
+        }
+        DirectorySerializationPolicyStore store = new DirectorySerializationPolicyStore(storeDirectory);
+        store.save(new SerializationPolicyStore.StoredPolicies(Map.of(OrderService.class.getName(), policyName), Map.of(policyName, policyContent)));
+        Path policyFile = storeDirectory.resolve(policyName + ".gwt.rpc");
+        Path binaryPolicyFile = storeDirectory.resolve(policyName + ".gwt.rpcb");
+        assertThat(binaryPolicyFile).exists();
+
+        // The content of the policy is not even read when its binary form is stored, which is mapped in memory
+        Files.delete(policyFile);
+        assertThat(store.load().getPolicyContentByName()).isEmpty();
+        assertThat(store.loadBinary(policyName)).isInstanceOf(MappedByteBuffer.class);
+        RpcPolicyFinder binaryPolicyFinder = newFinderWithOwnClassLoader(store);
+        assertThat(binaryPolicyFinder.getOrFetchPolicyNameAsync(OrderService.class.getName(), Runnable::run).toCompletableFuture().getNow(null))
+                .isEqualTo(policyName);
+        assertThat(binaryPolicyFinder.getSerializationPolicy(policyName)).isNotNull();
+
+        // ...but only when needed
+        Files.writeString(policyFile, policyContent);
+        assertThat(binaryPolicyFinder.getPolicyContent(policyName)).isEqualTo(policyContent);
+
+        // ...and is parsed when the binary form cannot be read (replaced, not truncated, since it is still mapped)
+        Files.delete(binaryPolicyFile);
+        Files.writeString(binaryPolicyFile, "not a binary policy");
+        RpcPolicyFinder textPolicyFinder = newFinderWithOwnClassLoader(store);
+        assertThat(textPolicyFinder.getOrFetchPolicyNameAsync(OrderService.class.getName(), Runnable::run).toCompletableFuture().getNow(null))
+                .isEqualTo(policyName);
+        assertThat(textPolicyFinder.getSerializationPolicy(policyName)).isNotNull();
+    }
+
+    /**
+     * Creates a finder resolving policies against a class loader of its own, so that it does not reuse the
+     * policies parsed by other finders.
+     */
+    private RpcPolicyFinder newFinderWithOwnClassLoader(SerializationPolicyStore store) {
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(new ClassLoader(contextClassLoader) {
+        });
+        try {
+            return new RpcPolicyFinder(getModuleBaseURL(), store);
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    @Test
+    void shouldStartFromBundledPoliciesWithoutFetchingThem(@TempDir Path resourcesDirectory) throws Exception {
+        Path moduleDirectory = Path.of(Objects.requireNonNull(getClass().getClassLoader().getResource("orders")).toURI());
+        // Bundled for the module name, whatever the host the module is then deployed to
+        SerializationPolicyBundler.bundle(resourcesDirectory, "AppModule", moduleDirectory);
+        assertThat(resourcesDirectory.resolve(ClasspathSerializationPolicyStore.RESOURCE_DIRECTORY)
+                .resolve("AppModule/49500BE2C20C979AD4B0A80E6F04FA03.gwt.rpcb")).exists();
+
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        try (URLClassLoader resourcesClassLoader = new URLClassLoader(new URL[]{resourcesDirectory.toUri().toURL()}, contextClassLoader)) {
+            thread.setContextClassLoader(resourcesClassLoader);
+            RpcPolicyFinder policyFinder = new RpcPolicyFinder(getModuleBaseURL(), ClasspathSerializationPolicyStore.forModule(getModuleBaseURL()));
+
+            assertThat(policyFinder.getOrFetchPolicyName(OrderService.class.getName())).isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+            assertThat(policyFinder.getSerializationPolicy("49500BE2C20C979AD4B0A80E6F04FA03")).isNotNull();
+            assertThat(wm.getAllServeEvents()).isEmpty();
+
+            // Discovered over HTTP once the server reports an unknown policy
+            serveFolder("orders-updated");
+            assertThat(policyFinder.fetchPolicyNameAsync(OrderService.class.getName(), Runnable::run).toCompletableFuture().join())
+                    .isEqualTo("49CEE67A18790BD431604E4192544D7F");
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    @Test
+    void shouldNotFetchPoliciesAgainWhenModuleIsNotModified() throws IOException {
+        serveFolder("orders");
+        String noCacheJsUrl = "/" + MODULE_RELATIVE_PATH + "AppModule.nocache.js";
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("orders/AppModule.nocache.js")) {
+            wm.stubFor(get(noCacheJsUrl).withHeader("If-None-Match", absent()).willReturn(aResponse()
+                    .withHeader("ETag", "\"v1\"")
+                    .withBody(Objects.requireNonNull(inputStream).readAllBytes())));
+        }
+        wm.stubFor(get(noCacheJsUrl).withHeader("If-None-Match", equalTo("\"v1\"")).willReturn(aResponse().withStatus(304)));
+
+        RpcPolicyFinder policyFinder = new RpcPolicyFinder(getModuleBaseURL());
+        assertThat(policyFinder.getOrFetchPolicyName(OrderService.class.getName())).isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+        assertThat(policyFinder.fetchPolicyNameAsync(OrderService.class.getName(), Runnable::run).toCompletableFuture().join())
+                .isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+
+        wm.verify(2, getRequestedFor(urlEqualTo(noCacheJsUrl)));
+        wm.verify(1, getRequestedFor(urlEqualTo(noCacheJsUrl)).withHeader("If-None-Match", equalTo("\"v1\"")));
+        wm.verify(1, getRequestedFor(urlEqualTo("/" + MODULE_RELATIVE_PATH + "49500BE2C20C979AD4B0A80E6F04FA03.gwt.rpc")));
+    }
+
+    @Test
+    void shouldReuseKnownPoliciesWhenModuleIsRecompiled() {
+        serveFolder("orders");
+
+        RpcPolicyFinder policyFinder = new RpcPolicyFinder(getModuleBaseURL());
+        assertThat(policyFinder.getOrFetchPolicyName(OrderService.class.getName())).isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+        assertThat(policyFinder.fetchPolicyNameAsync(OrderService.class.getName(), Runnable::run).toCompletableFuture().join())
+                .isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+
+        // Without validators the module is fetched again, but not the policy whose name did not change
+        wm.verify(2, getRequestedFor(urlEqualTo("/" + MODULE_RELATIVE_PATH + "AppModule.nocache.js")));
+        wm.verify(1, getRequestedFor(urlEqualTo("/" + MODULE_RELATIVE_PATH + "49500BE2C20C979AD4B0A80E6F04FA03.gwt.rpc")));
+    }
+
+    @Test
+    void shouldSkipNonPoliciesAndStopOnceRegisteredServicesAreResolved() {
+        serveFolder("orders");
+        String modulePath = "/" + MODULE_RELATIVE_PATH;
+        String notFound = "A".repeat(32);
+        String notAPolicy = "B".repeat(32);
+        String unavailable = "C".repeat(32);
+        wm.stubFor(get(modulePath + "3321E14570191EE254AB43C1F1A74C9E.cache.js").willReturn(aResponse().withBody(
+                "var a='3321E14570191EE254AB43C1F1A74C9E',b='49500BE2C20C979AD4B0A80E6F04FA03',"
+                + "c='" + notFound + "',d='" + notAPolicy + "',e='" + unavailable + "';")));
+        wm.stubFor(get(modulePath + notFound + ".gwt.rpc").willReturn(aResponse().withStatus(404)));
+        wm.stubFor(get(modulePath + notAPolicy + ".gwt.rpc").willReturn(aResponse().withBody("<html></html>")));
+        wm.stubFor(get(modulePath + unavailable + ".gwt.rpc").willReturn(aResponse().withStatus(503)));
+
+        RpcPolicyFinder policyFinder = new RpcPolicyFinder(getModuleBaseURL());
+        assertThat(policyFinder.getOrFetchPolicyName(OrderService.class.getName())).isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+
+        // Non-policies are not downloaded again, and the known policy resolves the service before the others
+        policyFinder.setMaxConcurrentDownloads(1);
+        assertThat(policyFinder.fetchPolicyNameAsync(OrderService.class.getName(), Runnable::run).toCompletableFuture().join())
+                .isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+
+        wm.verify(2, getRequestedFor(urlEqualTo(modulePath + "AppModule.nocache.js")));
+        wm.verify(1, getRequestedFor(urlEqualTo(modulePath + "49500BE2C20C979AD4B0A80E6F04FA03.gwt.rpc")));
+        wm.verify(1, getRequestedFor(urlEqualTo(modulePath + notFound + ".gwt.rpc")));
+        wm.verify(1, getRequestedFor(urlEqualTo(modulePath + notAPolicy + ".gwt.rpc")));
+        wm.verify(1, getRequestedFor(urlEqualTo(modulePath + unavailable + ".gwt.rpc")));
+    }
+
+    @Test
+    void shouldResolveConcurrentlyRequestedServicesOnColdStart() throws Exception {
+        String otherService = serveOtherServicePolicy();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < 5; i++) {
+                RpcPolicyFinder policyFinder = new RpcPolicyFinder(getModuleBaseURL());
+                policyFinder.setMaxConcurrentDownloads(1);
+                CompletableFuture<String> orderPolicyName = policyFinder.getOrFetchPolicyNameAsync(OrderService.class.getName(), executor).toCompletableFuture();
+                CompletableFuture<String> otherPolicyName = policyFinder.getOrFetchPolicyNameAsync(otherService, executor).toCompletableFuture();
+                assertThat(orderPolicyName.get(5, TimeUnit.SECONDS)).isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+                assertThat(otherPolicyName.get(5, TimeUnit.SECONDS)).isEqualTo("D".repeat(32));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldResolveServiceJoiningAFetchWhichStoppedEarly() throws Exception {
+        String otherService = serveOtherServicePolicy();
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch joined = new CountDownLatch(1);
+        AtomicBoolean blockSave = new AtomicBoolean();
+        SerializationPolicyStore store = new SerializationPolicyStore() {
+            @Override
+            public StoredPolicies load() {
+                return new StoredPolicies(Map.of(), Map.of());
+            }
+
+            @Override
+            public void save(StoredPolicies policies) throws IOException {
+                if (blockSave.getAndSet(false)) {
+                    saving.countDown();
+                    try {
+                        joined.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            RpcPolicyFinder policyFinder = new RpcPolicyFinder(getModuleBaseURL(), store);
+            policyFinder.setMaxConcurrentDownloads(1);
+            String otherPolicyPath = "/" + MODULE_RELATIVE_PATH + "D".repeat(32) + ".gwt.rpc";
+            wm.stubFor(get(otherPolicyPath).willReturn(aResponse().withStatus(503)));
+            assertThat(policyFinder.getOrFetchPolicyName(OrderService.class.getName())).isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+            serveOtherServicePolicy();
+
+            // The known policy resolves the only registered service, so the fetch skips the other policy...
+            blockSave.set(true);
+            CompletableFuture<String> orderPolicyName = policyFinder.fetchPolicyNameAsync(OrderService.class.getName(), executor).toCompletableFuture();
+            assertThat(saving.await(5, TimeUnit.SECONDS)).isTrue();
+            // ...while another service joins it
+            CompletableFuture<String> otherPolicyName = policyFinder.fetchPolicyNameAsync(otherService, executor).toCompletableFuture();
+            joined.countDown();
+
+            assertThat(orderPolicyName.get(5, TimeUnit.SECONDS)).isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+            assertThat(otherPolicyName.get(5, TimeUnit.SECONDS)).isEqualTo("D".repeat(32));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldKeepStoredPoliciesSkippedByAFetchWhichStoppedEarly(@TempDir Path storeDirectory) throws IOException {
+        String otherService = serveOtherServicePolicy();
+        DirectorySerializationPolicyStore store = new DirectorySerializationPolicyStore(storeDirectory);
+        RpcPolicyFinder policyFinder = new RpcPolicyFinder(getModuleBaseURL(), store);
+        assertThat(policyFinder.getOrFetchPolicyName(OrderService.class.getName())).isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+        assertThat(policyFinder.getOrFetchPolicyName(otherService)).isEqualTo("D".repeat(32));
+
+        // After a restart, only one of the services is used: its policy is revalidated first, and resolves it
+        RpcPolicyFinder restartedPolicyFinder = new RpcPolicyFinder(getModuleBaseURL(), store);
+        restartedPolicyFinder.setMaxConcurrentDownloads(1);
+        assertThat(restartedPolicyFinder.getOrFetchPolicyName(OrderService.class.getName())).isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+        restartedPolicyFinder.fetchPolicyNameAsync(OrderService.class.getName(), Runnable::run).toCompletableFuture().join();
+
+        assertThat(store.load().getPolicyNameByService()).containsEntry(otherService, "D".repeat(32));
+        assertThat(storeDirectory.resolve("D".repeat(32) + ".gwt.rpc")).exists();
+    }
+
+    /**
+     * Serves the orders module with another policy, for another service, and returns the name of that service.
+     */
+    private String serveOtherServicePolicy() {
+        serveFolder("orders");
+        String modulePath = "/" + MODULE_RELATIVE_PATH;
+        String otherPolicy = "D".repeat(32);
+        String otherService = "com.example.OtherService";
+        wm.stubFor(get(modulePath + "3321E14570191EE254AB43C1F1A74C9E.cache.js").willReturn(aResponse().withBody(
+                "var a='3321E14570191EE254AB43C1F1A74C9E',b='49500BE2C20C979AD4B0A80E6F04FA03',c='" + otherPolicy + "';")));
+        wm.stubFor(get(modulePath + otherPolicy + ".gwt.rpc").willReturn(aResponse().withBody(
+                otherService + ", false, false, false, false, _, 1\n"
+                + "java.lang.String, true, true, true, true, java.lang.String/2004016611, 2004016611\n")));
+        return otherService;
+    }
+
+    @Test
+    void shouldLoadPolicyWhichWasNotFoundOnTheNextFetch() {
+        serveFolder("orders");
+        String policyPath = "/" + MODULE_RELATIVE_PATH + "49500BE2C20C979AD4B0A80E6F04FA03.gwt.rpc";
+        // As while a new compilation is being deployed: the nocache.js is live before the policy
+        wm.stubFor(get(policyPath).atPriority(1).willReturn(aResponse().withStatus(404)));
+
+        RpcPolicyFinder policyFinder = new RpcPolicyFinder(getModuleBaseURL());
+        assertThat(policyFinder.getOrFetchPolicyName(OrderService.class.getName())).isNull();
+
+        wm.removeStub(wm.listAllStubMappings().getMappings().stream()
+                .filter(mapping -> mapping.getPriority() != null && mapping.getPriority() == 1)
+                .findFirst().orElseThrow());
+        assertThat(policyFinder.fetchPolicyNameAsync(OrderService.class.getName(), Runnable::run).toCompletableFuture().join())
+                .isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+        wm.verify(2, getRequestedFor(urlEqualTo(policyPath)));
+    }
+
+    @Test
+    void shouldSwapToTheNewPoliciesInBackgroundWhenModuleIsRecompiled() throws InterruptedException {
+        serveFolder("orders");
+
+        RpcPolicyFinder policyFinder = new RpcPolicyFinder(getModuleBaseURL());
+        assertThat(policyFinder.getOrFetchPolicyName(OrderService.class.getName())).isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03");
+        long version = policyFinder.getPoliciesVersion();
+
+        wm.resetAll();
+        serveFolder("orders-updated");
+        policyFinder.startWatching(Duration.ofMillis(50));
+        try {
+            for (int i = 0; i < 100 && policyFinder.getPoliciesVersion() == version; i++) {
+                Thread.sleep(50);
+            }
+        } finally {
+            policyFinder.stopWatching();
+        }
+
+        // The new policy is used without fetching on the call path, and the old one is dropped
+        assertThat(policyFinder.getPoliciesVersion()).isEqualTo(version + 1);
+        assertThat(policyFinder.getOrFetchPolicyNameAsync(OrderService.class.getName(), Runnable::run).toCompletableFuture().getNow(null))
+                .isEqualTo("49CEE67A18790BD431604E4192544D7F");
+        assertThat(policyFinder.getSerializationPolicy("49CEE67A18790BD431604E4192544D7F")).isNotNull();
+        assertThat(policyFinder.getSerializationPolicy("49500BE2C20C979AD4B0A80E6F04FA03")).isNull();
+        assertThat(policyFinder.getPolicyContent("49500BE2C20C979AD4B0A80E6F04FA03")).isNull();
+    }
+
+    @Test
+    void shouldRejectANonPositiveWatchPeriod() {
+        RpcPolicyFinder policyFinder = new RpcPolicyFinder(getModuleBaseURL());
+
+        assertThatThrownBy(() -> policyFinder.startWatching(Duration.ZERO)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> policyFinder.startWatching(Duration.ofSeconds(-1))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
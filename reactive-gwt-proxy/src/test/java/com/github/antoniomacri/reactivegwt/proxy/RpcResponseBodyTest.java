@@ -0,0 +1,127 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+public class RpcResponseBodyTest {
+
+    private static final String PAYLOAD = "//OK[1,[\"" + "café ".repeat(1000) + "\"],0,7]";
+
+    private static CompletionStage<RpcResponseBody> receive(Map<String, List<String>> headers, byte[] body, int chunkSize) {
+        HttpResponse.ResponseInfo responseInfo = new HttpResponse.ResponseInfo() {
+            @Override
+            public int statusCode() {
+                return 200;
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return HttpHeaders.of(headers, (name, value) -> true);
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return HttpClient.Version.HTTP_1_1;
+            }
+        };
+        HttpResponse.BodySubscriber<RpcResponseBody> subscriber = RpcResponseBody.bodyHandler().apply(responseInfo);
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        for (int i = 0; i < body.length; i += chunkSize) {
+            subscriber.onNext(List.of(ByteBuffer.wrap(body, i, Math.min(chunkSize, body.length - i))));
+        }
+        subscriber.onComplete();
+        return subscriber.getBody();
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void shouldCollectUncompressedBody() {
+        byte[] bytes = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+
+        RpcResponseBody body = receive(Map.of("Content-Length", List.of(String.valueOf(bytes.length))), bytes, 100)
+                .toCompletableFuture().join();
+
+        assertThat(body.toString()).isEqualTo(PAYLOAD);
+        assertThat(body.getEncodedLength()).isEqualTo(bytes.length);
+    }
+
+    @Test
+    public void shouldInflateGzipBodyInChunks() throws IOException {
+        byte[] bytes = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = gzip(bytes);
+
+        // Chunks smaller than the gzip header and trailer
+        RpcResponseBody body = receive(Map.of("Content-Encoding", List.of("gzip")), compressed, 3)
+                .toCompletableFuture().join();
+
+        assertThat(body.toString()).isEqualTo(PAYLOAD);
+        assertThat(body.length()).isEqualTo(bytes.length);
+        assertThat(body.getEncodedLength()).isEqualTo(compressed.length);
+    }
+
+    @Test
+    public void shouldInflateDeflateBody() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out)) {
+            deflate.write(PAYLOAD.getBytes(StandardCharsets.UTF_8));
+        }
+
+        RpcResponseBody body = receive(Map.of("Content-Encoding", List.of("deflate")), out.toByteArray(), 64)
+                .toCompletableFuture().join();
+
+        assertThat(body.toString()).isEqualTo(PAYLOAD);
+    }
+
+    @Test
+    public void shouldRejectTruncatedGzipBody() throws IOException {
+        byte[] compressed = gzip(PAYLOAD.getBytes(StandardCharsets.UTF_8));
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length - 4);
+
+        assertThatThrownBy(() -> receive(Map.of("Content-Encoding", List.of("gzip")), truncated, 64)
+                .toCompletableFuture().join())
+                .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void shouldRejectCorruptedGzipBody() throws IOException {
+        byte[] corrupted = gzip(PAYLOAD.getBytes(StandardCharsets.UTF_8));
+        corrupted[0] = 0; // The gzip magic number
+
+        assertThatThrownBy(() -> receive(Map.of("Content-Encoding", List.of("gzip")), corrupted, 64)
+                .toCompletableFuture().join())
+                .hasCauseInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,160 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import com.google.gwt.user.client.rpc.IncompatibleRemoteServiceException;
+import com.google.gwt.user.client.rpc.RpcTokenException;
+import com.google.gwt.user.client.rpc.SerializationException;
+import com.google.gwt.user.client.rpc.XsrfToken;
+import com.google.gwt.user.server.rpc.SerializationPolicy;
+import com.google.gwt.user.server.rpc.impl.StandardSerializationPolicy;
+import com.google.gwt.user.server.rpc.impl.TypeNameObfuscator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+public class SerializationPolicyLoaderTest {
+
+    private static String readPolicy(String fileName) throws IOException {
+        try (InputStream inputStream = SerializationPolicyLoaderTest.class.getClassLoader().getResourceAsStream(fileName)) {
+            return new String(Objects.requireNonNull(inputStream).readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static SerializationPolicy loadLazily(String policyContent, ClassLoader classLoader) throws ParseException {
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(classLoader);
+        try {
+            return SerializationPolicyLoader.loadLazily(policyContent);
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    private static String validate(SerializationPolicy policy, Class<?> clazz, boolean serialize) {
+        try {
+            if (serialize) {
+                policy.validateSerialize(clazz);
+            } else {
+                policy.validateDeserialize(clazz);
+            }
+            return "valid";
+        } catch (SerializationException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Test
+    public void lazyPolicyShouldAnswerLikeTheStandardOne() throws IOException, ParseException, SerializationException {
+        String policyContent = readPolicy("orders/49500BE2C20C979AD4B0A80E6F04FA03.gwt.rpc");
+        StandardSerializationPolicy standardPolicy = SerializationPolicyLoader.load(new StringReader(policyContent), null);
+        SerializationPolicy lazyPolicy = SerializationPolicyLoader.loadLazily(policyContent);
+
+        List<Class<?>> classes = List.of(OrderItem.class, OrderService.class, IncompatibleRemoteServiceException.class,
+                RpcTokenException.class, XsrfToken.class, Exception.class, Integer.class, String.class, int.class,
+                Long.class, OrderItem[].class);
+        for (Class<?> clazz : classes) {
+            assertThat(lazyPolicy.shouldSerializeFields(clazz)).as(clazz.getName()).isEqualTo(standardPolicy.shouldSerializeFields(clazz));
+            assertThat(lazyPolicy.shouldDeserializeFields(clazz)).as(clazz.getName()).isEqualTo(standardPolicy.shouldDeserializeFields(clazz));
+            assertThat(validate(lazyPolicy, clazz, true)).as(clazz.getName()).isEqualTo(validate(standardPolicy, clazz, true));
+            assertThat(validate(lazyPolicy, clazz, false)).as(clazz.getName()).isEqualTo(validate(standardPolicy, clazz, false));
+            assertThat(lazyPolicy.getClientFieldNamesForEnhancedClass(clazz)).as(clazz.getName())
+                    .isEqualTo(standardPolicy.getClientFieldNamesForEnhancedClass(clazz));
+            assertThat(((TypeNameObfuscator) lazyPolicy).getTypeIdForClass(clazz)).as(clazz.getName())
+                    .isEqualTo(standardPolicy.getTypeIdForClass(clazz));
+        }
+        assertThat(((TypeNameObfuscator) lazyPolicy).getClassNameForTypeId("java.lang.Integer/3438268394"))
+                .isEqualTo(standardPolicy.getClassNameForTypeId("java.lang.Integer/3438268394"));
+        assertThat(lazyPolicy.getClientFieldNamesForEnhancedClass(OrderItem.class)).isEqualTo(Set.of("id", "description"));
+    }
+
+    @Test
+    public void lazyPolicyShouldLoadOnlyTheExchangedClasses() throws IOException, ParseException, SerializationException {
+        List<String> loadedClasses = new CopyOnWriteArrayList<>();
+        ClassLoader classLoader = new ClassLoader(getClass().getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                loadedClasses.add(name);
+                return super.loadClass(name, resolve);
+            }
+        };
+        String policyContent = readPolicy("orders/49500BE2C20C979AD4B0A80E6F04FA03.gwt.rpc")
+                               + "com.example.Missing, true, true, true, true, com.example.Missing/1, 1\n";
+
+        SerializationPolicy lazyPolicy = loadLazily(policyContent, classLoader);
+        assertThat(loadedClasses).isEmpty();
+
+        lazyPolicy.validateSerialize(OrderItem.class);
+        lazyPolicy.validateDeserialize(OrderItem.class);
+        assertThat(lazyPolicy.shouldSerializeFields(OrderItem.class)).isTrue();
+        assertThat(loadedClasses).containsExactly(OrderItem.class.getName());
+
+        List<ClassNotFoundException> notFoundExceptions = new ArrayList<>();
+        SerializationPolicyLoader.load(new StringReader(policyContent), notFoundExceptions);
+        assertThat(notFoundExceptions).extracting(Throwable::getMessage).contains("com.example.Missing");
+    }
+
+    @Test
+    public void binaryPolicyShouldAnswerLikeTheTextOne(@TempDir Path tempDir) throws IOException, ParseException, SerializationException {
+        Path policyFile = tempDir.resolve("49500BE2C20C979AD4B0A80E6F04FA03.gwt.rpc");
+        Files.writeString(policyFile, readPolicy("orders/49500BE2C20C979AD4B0A80E6F04FA03.gwt.rpc"));
+        Path binaryFile = SerializationPolicyCompiler.compile(policyFile, tempDir);
+        assertThat(binaryFile.getFileName().toString()).isEqualTo("49500BE2C20C979AD4B0A80E6F04FA03.gwt.rpcb");
+        assertThat(Files.size(binaryFile)).isLessThan(Files.size(policyFile));
+
+        StandardSerializationPolicy standardPolicy = SerializationPolicyLoader.load(Files.newBufferedReader(policyFile), null);
+        SerializationPolicy binaryPolicy = SerializationPolicyLoader.loadBinary(binaryFile);
+
+        List<Class<?>> classes = List.of(OrderItem.class, OrderService.class, IncompatibleRemoteServiceException.class,
+                RpcTokenException.class, XsrfToken.class, Exception.class, Integer.class, Long.class);
+        for (Class<?> clazz : classes) {
+            assertThat(binaryPolicy.shouldSerializeFields(clazz)).as(clazz.getName()).isEqualTo(standardPolicy.shouldSerializeFields(clazz));
+            assertThat(binaryPolicy.shouldDeserializeFields(clazz)).as(clazz.getName()).isEqualTo(standardPolicy.shouldDeserializeFields(clazz));
+            assertThat(validate(binaryPolicy, clazz, true)).as(clazz.getName()).isEqualTo(validate(standardPolicy, clazz, true));
+            assertThat(validate(binaryPolicy, clazz, false)).as(clazz.getName()).isEqualTo(validate(standardPolicy, clazz, false));
+            assertThat(((TypeNameObfuscator) binaryPolicy).getTypeIdForClass(clazz)).as(clazz.getName())
+                    .isEqualTo(standardPolicy.getTypeIdForClass(clazz));
+        }
+        assertThat(binaryPolicy.getClientFieldNamesForEnhancedClass(OrderItem.class)).isEqualTo(Set.of("id", "description"));
+    }
+
+    @Test
+    public void shouldRejectCorruptedBinaryPolicies() throws IOException, ParseException {
+        byte[] binaryPolicy = SerializationPolicyLoader.compile(readPolicy("orders/49500BE2C20C979AD4B0A80E6F04FA03.gwt.rpc"));
+
+        assertThatThrownBy(() -> SerializationPolicyLoader.loadBinary(ByteBuffer.wrap(binaryPolicy, 0, binaryPolicy.length / 2)))
+                .isInstanceOf(ParseException.class);
+        assertThatThrownBy(() -> SerializationPolicyLoader.loadBinary(ByteBuffer.wrap("text".getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(ParseException.class);
+        byte[] corrupted = binaryPolicy.clone();
+        corrupted[8] = 0x7f; // The number of strings
+        assertThatThrownBy(() -> SerializationPolicyLoader.loadBinary(ByteBuffer.wrap(corrupted)))
+                .isInstanceOf(ParseException.class);
+    }
+
+    @Test
+    public void shouldRejectMalformedPolicies() {
+        assertThatThrownBy(() -> SerializationPolicyLoader.loadLazily("java.lang.String, true, true\n"))
+                .isInstanceOf(ParseException.class);
+        assertThatThrownBy(() -> SerializationPolicyLoader.loadLazily(" , true\n"))
+                .isInstanceOf(ParseException.class);
+        assertThatThrownBy(() -> SerializationPolicyLoader.loadLazily("java.lang.String, false, false, false, false, id, 1\n"))
+                .isInstanceOf(ParseException.class);
+    }
+}
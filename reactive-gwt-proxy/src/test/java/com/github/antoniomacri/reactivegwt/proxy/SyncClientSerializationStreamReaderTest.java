@@ -0,0 +1,110 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import com.google.gwt.user.client.rpc.SerializationException;
+import com.google.gwt.user.server.rpc.impl.StandardSerializationPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+/**
+ * Decodes hand-written responses, whose tokens are read from the last one backwards.
+ */
+public class SyncClientSerializationStreamReaderTest {
+
+    private SyncClientSerializationStreamReader prepareReader(String encoded) throws SerializationException {
+        StandardSerializationPolicy policy = new StandardSerializationPolicy(Map.of(), Map.of(), Map.of());
+        SyncClientSerializationStreamReader reader = new SyncClientSerializationStreamReader(policy);
+        reader.prepareToRead(encoded);
+        return reader;
+    }
+
+    @Test
+    public void shouldDecodePrimitivesInPlace() throws SerializationException {
+        SyncClientSerializationStreamReader reader = prepareReader(
+                "['" + Utils.toBase64(-1234567890123L) + "',-0,2.5,1e3,-42,65,300,-7,0,1,1,[\"first\",\"second\"],0,7]");
+
+        assertThat(reader.getVersion()).isEqualTo(7);
+        assertThat(reader.readString()).isEqualTo("first");
+        assertThat(reader.readBoolean()).isTrue();
+        assertThat(reader.readBoolean()).isFalse();
+        assertThat(reader.readByte()).isEqualTo((byte) -7);
+        assertThat(reader.readShort()).isEqualTo((short) 300);
+        assertThat(reader.readChar()).isEqualTo('A');
+        assertThat(reader.readInt()).isEqualTo(-42);
+        assertThat(reader.readDouble()).isEqualTo(1000.0);
+        assertThat(reader.readFloat()).isEqualTo(2.5f);
+        assertThat(Double.doubleToRawLongBits(reader.readDouble())).isEqualTo(Double.doubleToRawLongBits(-0.0));
+        assertThat(reader.readLong()).isEqualTo(-1234567890123L);
+    }
+
+    @Test
+    public void shouldDecodeNonIntegralDoubles() throws SerializationException {
+        SyncClientSerializationStreamReader reader = prepareReader(
+                "[NaN,-Infinity,123456789012345678901,0.1,[],0,7]");
+
+        assertThat(reader.readDouble()).isEqualTo(0.1);
+        assertThat(reader.readDouble()).isEqualTo(123456789012345678901.0);
+        assertThat(reader.readDouble()).isEqualTo(Double.NEGATIVE_INFINITY);
+        assertThat(reader.readDouble()).isNaN();
+    }
+
+    @Test
+    public void shouldDecodePrimitiveArraysInPlace() throws SerializationException {
+        SyncClientSerializationStreamReader reader = prepareReader(
+                "[3,-2,1,3,1,'B','A',2,2,[\"[I/2970817851\",\"[J/2335735862\"],0,7]");
+
+        assertThat(reader.readObject()).isEqualTo(new long[]{0, 1});
+        assertThat(reader.readObject()).isEqualTo(new int[]{1, -2, 3});
+    }
+
+    @Test
+    public void shouldRejectArrayLengthsBeyondRemainingTokens() throws SerializationException {
+        SyncClientSerializationStreamReader reader = prepareReader(
+                "[1,2,1000000000,1,[\"[I/2970817851\"],0,7]");
+
+        assertThatThrownBy(reader::readObject)
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("1000000000");
+    }
+
+    @Test
+    public void shouldDecodeStringTableEntriesWhenRead() throws SerializationException {
+        SyncClientSerializationStreamReader reader = prepareReader(
+                "[1,2,3,[\"plain\",\"tab\\there \\\"quoted\\\" \\u20AC\\x21\\\\\",\"\"],0,7]");
+
+        assertThat(reader.readString()).isEqualTo("");
+        assertThat(reader.readString()).isEqualTo("tab\there \"quoted\" \u20AC!\\");
+        String plain = reader.readString();
+        assertThat(plain).isEqualTo("plain");
+        assertThat(reader.getString(1)).isSameAs(plain);
+    }
+
+    @Test
+    public void shouldTokenizeConcatenatedSegmentsInPlace() throws SerializationException {
+        SyncClientSerializationStreamReader reader = prepareReader(
+                "[5,4].concat([3,2],[1,[\"one\"],0,7])");
+
+        assertThat(reader.getVersion()).isEqualTo(7);
+        assertThat(reader.readString()).isEqualTo("one");
+        for (int expected = 2; expected <= 5; expected++) {
+            assertThat(reader.readInt()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void shouldDecodeUnescapedNonAsciiStringsFromBytes() throws SerializationException {
+        SyncClientSerializationStreamReader reader = new SyncClientSerializationStreamReader(
+                new StandardSerializationPolicy(Map.of(), Map.of(), Map.of()));
+        RpcResponseBody body = RpcResponseBody.of("//OK[2,1,[\"caf\u00e9\",\"\u20ac \\\"\u00e8\\\"\"],0,7]");
+        assertThat(RemoteServiceProxy.isReturnValue(body)).isTrue();
+
+        reader.prepareToRead(body.subSequence(4, body.length()));
+
+        assertThat(reader.readString()).isEqualTo("caf\u00e9");
+        assertThat(reader.readString()).isEqualTo("\u20ac \"\u00e8\"");
+    }
+}
@@ -0,0 +1,154 @@
+package com.github.antoniomacri.reactivegwt.proxy;
+
+import com.google.gwt.user.server.rpc.SerializationPolicy;
+import com.google.gwt.user.server.rpc.impl.StandardSerializationPolicy;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class SyncClientSerializationStreamWriterTest {
+
+    private SyncClientSerializationStreamWriter prepareWriter() {
+        StandardSerializationPolicy policy = new StandardSerializationPolicy(Map.of(), Map.of(), Map.of());
+        SyncClientSerializationStreamWriter writer = new SyncClientSerializationStreamWriter(
+                "http://test/", "test-policy", policy, null, 7);
+        writer.prepareToWrite();
+        return writer;
+    }
+
+    @Test
+    public void shouldEscapeStringTableEntries() {
+        SyncClientSerializationStreamWriter writer = prepareWriter();
+        writer.writeString("plain text");
+        writer.writeString("a|b\\c\u0000\né€~\u007f");
+
+        assertThat(writer.toString()).isEqualTo("7|0|4|http://test/|test-policy|plain text|"
+                                                + "a\\!b\\\\c\\0\\u000a\\u00e9\\u20ac~\u007f|1|2|3|4|");
+    }
+
+    @Test
+    public void shouldWriteIntegersAsDecimalTokens() {
+        SyncClientSerializationStreamWriter writer = prepareWriter();
+        writer.writeInt(Integer.MIN_VALUE);
+        writer.writeInt(Integer.MAX_VALUE);
+        writer.writeInt(0);
+        writer.writeShort((short) -12);
+        writer.writeChar('A');
+        writer.writeBoolean(true);
+
+        assertThat(writer.toString()).endsWith("|1|2|-2147483648|2147483647|0|-12|65|1|");
+    }
+
+    @Test
+    public void shouldReuseTheRequestBufferForTheNextRequest() {
+        SyncClientSerializationStreamWriter writer = prepareWriter();
+        writer.writeString("a longer first request");
+        ByteBuffer firstRequest = writer.toByteBuffer();
+
+        writer.prepareToWrite();
+        writer.writeString("second");
+        ByteBuffer secondRequest = writer.toByteBuffer();
+
+        assertThat(secondRequest.array()).isSameAs(firstRequest.array());
+        assertThat(StandardCharsets.US_ASCII.decode(secondRequest).toString())
+                .isEqualTo("7|0|3|http://test/|test-policy|second|1|2|3|");
+    }
+
+    @Test
+    public void shouldLookUpTheVersion5TypeSignaturesOncePerPolicy() throws Exception {
+        // Signatures different from the local ones, used as they are by the writer on protocol version 5
+        SerializationPolicy policy = SerializationPolicyLoader.loadLazily(
+                "java.util.ArrayList, true, true, true, true, java.util.ArrayList/3821976829, 3821976829\n"
+                + "java.util.Date, true, true, true, true, java.util.Date/3385151746, 3385151746\n");
+        List<Object> list = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            list.add(new ArrayList<>());
+            list.add(new Date(i));
+        }
+
+        List<String> warnings = new ArrayList<>();
+        Logger logger = Logger.getLogger(SyncClientSerializationStreamWriter.class);
+        AppenderSkeleton appender = new AppenderSkeleton() {
+            @Override
+            protected void append(LoggingEvent event) {
+                if (event.getLevel() == Level.WARN) {
+                    warnings.add(event.getRenderedMessage());
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public boolean requiresLayout() {
+                return false;
+            }
+        };
+        logger.addAppender(appender);
+        try {
+            SyncClientSerializationStreamWriter writer = new SyncClientSerializationStreamWriter(
+                    "http://test/", "test-policy", policy, null, 5);
+            writer.prepareToWrite();
+            writer.writeObject(list);
+
+            assertThat(writer.toString()).contains("|java.util.ArrayList/3821976829|", "|java.util.Date/3385151746|");
+            assertThat(warnings).hasSize(2);
+            assertThat(warnings).anyMatch(warning -> warning.endsWith("type=java.util.ArrayList"));
+            assertThat(warnings).anyMatch(warning -> warning.endsWith("type=java.util.Date"));
+
+            // Another writer on the same policy reuses the signatures
+            SyncClientSerializationStreamWriter otherWriter = new SyncClientSerializationStreamWriter(
+                    "http://test/", "test-policy", policy, null, 5);
+            otherWriter.prepareToWrite();
+            otherWriter.writeObject(list);
+
+            assertThat(otherWriter.toString()).isEqualTo(writer.toString());
+            assertThat(warnings).hasSize(2);
+        } finally {
+            logger.removeAppender(appender);
+        }
+    }
+
+    @Test
+    public void shouldProduceTheSameRequestFromACapturedPrefix() {
+        SyncClientSerializationStreamWriter prefixWriter = prepareWriter();
+        prefixWriter.writeString("com.example.Service");
+        prefixWriter.writeString("echo");
+        prefixWriter.writeInt(2);
+        prefixWriter.writeString("java.lang.String");
+        prefixWriter.writeString("java.lang.String");
+        SyncClientSerializationStreamWriter.RequestPrefix prefix = prefixWriter.toRequestPrefix();
+
+        SyncClientSerializationStreamWriter fullWriter = prepareWriter();
+        fullWriter.writeString("com.example.Service");
+        fullWriter.writeString("echo");
+        fullWriter.writeInt(2);
+        fullWriter.writeString("java.lang.String");
+        fullWriter.writeString("java.lang.String");
+        fullWriter.writeString("echo");
+        fullWriter.writeString("argument");
+
+        SyncClientSerializationStreamWriter writer = new SyncClientSerializationStreamWriter("http://test/", "test-policy",
+                new StandardSerializationPolicy(Map.of(), Map.of(), Map.of()), null, 7);
+        writer.prepareToWrite(prefix);
+        writer.writeString("echo");
+        writer.writeString("argument");
+
+        assertThat(writer.toString()).isEqualTo(fullWriter.toString());
+        assertThat(writer.toString()).isEqualTo("7|0|6|http://test/|test-policy|com.example.Service|echo|java.lang.String|argument|"
+                                                + "1|2|3|4|2|5|5|4|6|");
+    }
+}